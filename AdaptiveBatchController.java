@@ -0,0 +1,202 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Steers batch size and worker count toward a target batchUpdate latency.
+// Batch size follows latency: after every window of batches it is scaled by target / observed latency,
+// at most halved or doubled per step. Worker count hill-climbs on throughput: while latency is within
+// the target band it keeps moving in the direction that last raised rows/second, otherwise it steps back
+// and holds for a few windows.
+// Workers are dropped whenever latency overshoots even at the minimum batch size.
+public class AdaptiveBatchController {
+
+    // Largest batch any controller hands out; per-thread batch buffers (RelationshipColumns) are kept up to this size
+    public static final int LARGEST_BATCH_SIZE = 50_000;
+
+    private static final int MAX_RECORDED_ADJUSTMENTS = 200;
+    private static final double LATENCY_BAND = 0.25;
+    private static final double THROUGHPUT_GAIN = 0.05;
+    private static final int HOLD_WINDOWS = 5;
+
+    private final long targetLatencyMillis;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int window;
+
+    private volatile int batchSize;
+    private volatile int workers;
+
+    // Current window, guarded by this
+    private int windowBatches;
+    private long windowRows;
+    private long windowNanos;
+    private double lastRowsPerSecond;
+    private int workerStep = 1;
+    private int holdWindows;
+
+    private long totalBatches;
+    private long totalRows;
+    private long totalNanos;
+    private final Deque<Adjustment> adjustments = new ArrayDeque<>();
+
+    public AdaptiveBatchController(long targetLatencyMillis, int initialBatchSize, int minBatchSize, int maxBatchSize,
+                                   int initialWorkers, int minWorkers, int maxWorkers) {
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = Math.min(maxBatchSize, LARGEST_BATCH_SIZE);
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.batchSize = clamp(initialBatchSize, minBatchSize, this.maxBatchSize);
+        this.workers = clamp(initialWorkers, minWorkers, maxWorkers);
+        this.window = Math.max(4, maxWorkers);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    // Called by the workers after every batchUpdate
+    public synchronized void record(int rows, long elapsedNanos) {
+        totalBatches++;
+        totalRows += rows;
+        totalNanos += elapsedNanos;
+        windowBatches++;
+        windowRows += rows;
+        windowNanos += elapsedNanos;
+        if (windowBatches >= window) {
+            adjust();
+        }
+    }
+
+    private void adjust() {
+        double latencyMillis = windowNanos / 1_000_000.0 / windowBatches;
+        // Batches of one window overlap across the workers; wall clock would also count idle time between loads
+        double busySeconds = Math.max(1, windowNanos) / 1_000_000_000.0 / workers;
+        double rowsPerSecond = windowRows / busySeconds;
+
+        double factor = Math.max(0.5, Math.min(2.0, targetLatencyMillis / Math.max(1.0, latencyMillis)));
+        int newBatchSize = clamp((int) (batchSize * factor), minBatchSize, maxBatchSize);
+
+        int newWorkers = workers;
+        boolean withinBand = Math.abs(latencyMillis - targetLatencyMillis) <= targetLatencyMillis * LATENCY_BAND;
+        if (latencyMillis > targetLatencyMillis * (1 + LATENCY_BAND) && batchSize == minBatchSize) {
+            // Smallest batches are still too slow: the database is saturated, back off
+            newWorkers = workers - 1;
+            workerStep = -1;
+        } else if (holdWindows > 0) {
+            holdWindows--;
+        } else if (withinBand) {
+            if (lastRowsPerSecond > 0 && rowsPerSecond < lastRowsPerSecond * (1 + THROUGHPUT_GAIN)) {
+                // The last step did not pay off: undo it and stay there for a while before probing again
+                workerStep = -workerStep;
+                holdWindows = HOLD_WINDOWS;
+            }
+            newWorkers = workers + workerStep;
+        }
+        newWorkers = clamp(newWorkers, minWorkers, maxWorkers);
+
+        if (newBatchSize != batchSize || newWorkers != workers) {
+            Adjustment adjustment = new Adjustment(System.currentTimeMillis(), batchSize, newBatchSize, workers, newWorkers,
+                latencyMillis, rowsPerSecond);
+            adjustments.addLast(adjustment);
+            if (adjustments.size() > MAX_RECORDED_ADJUSTMENTS) {
+                adjustments.removeFirst();
+            }
+            System.out.println("Batch controller: " + adjustment);
+            batchSize = newBatchSize;
+            workers = newWorkers;
+        }
+
+        lastRowsPerSecond = rowsPerSecond;
+        windowBatches = 0;
+        windowRows = 0;
+        windowNanos = 0;
+    }
+
+    public synchronized List<Adjustment> getAdjustments() {
+        return new ArrayList<>(adjustments);
+    }
+
+    public synchronized long getTotalBatches() {
+        return totalBatches;
+    }
+
+    public synchronized long getTotalRows() {
+        return totalRows;
+    }
+
+    public synchronized double getAverageLatencyMillis() {
+        return totalBatches == 0 ? 0 : totalNanos / 1_000_000.0 / totalBatches;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public static class Adjustment {
+        private final long timestamp;
+        private final int fromBatchSize;
+        private final int toBatchSize;
+        private final int fromWorkers;
+        private final int toWorkers;
+        private final double latencyMillis;
+        private final double rowsPerSecond;
+
+        Adjustment(long timestamp, int fromBatchSize, int toBatchSize, int fromWorkers, int toWorkers,
+                   double latencyMillis, double rowsPerSecond) {
+            this.timestamp = timestamp;
+            this.fromBatchSize = fromBatchSize;
+            this.toBatchSize = toBatchSize;
+            this.fromWorkers = fromWorkers;
+            this.toWorkers = toWorkers;
+            this.latencyMillis = latencyMillis;
+            this.rowsPerSecond = rowsPerSecond;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getFromBatchSize() {
+            return fromBatchSize;
+        }
+
+        public int getToBatchSize() {
+            return toBatchSize;
+        }
+
+        public int getFromWorkers() {
+            return fromWorkers;
+        }
+
+        public int getToWorkers() {
+            return toWorkers;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public double getRowsPerSecond() {
+            return rowsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return "batch size " + fromBatchSize + " -> " + toBatchSize + ", workers " + fromWorkers + " -> " + toWorkers
+                + " (latency " + String.format("%.1f", latencyMillis) + " ms, " + String.format("%.2f", rowsPerSecond)
+                + " records/second)";
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.List;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Database-native bulk path: every column is bound as one SQL array and the rows are rebuilt server side,
+// e.g. PostgreSQL "INSERT INTO ... SELECT * FROM unnest(?, ?, ?, ?, ?, ?)". A whole batch is one
+// statement with six parameters, regardless of its size.
+public class ArrayBindingInsertStrategy implements InsertStrategy {
+
+    private final String arrayInsertSql;
+    private final String elementType;
+
+    public ArrayBindingInsertStrategy(String arrayInsertSql, String elementType) {
+        this.arrayInsertSql = arrayInsertSql;
+        this.elementType = elementType;
+    }
+
+    @Override
+    public int insert(JdbcTemplate jdbcTemplate, List<Relationships> batch) {
+        int size = batch.size();
+        String[] bdrIds = new String[size];
+        String[] businessEntities = new String[size];
+        String[] natures = new String[size];
+        String[] statuses = new String[size];
+        // Reason columns are written as NULL, as in the other strategies
+        String[] goldenBdrIds = new String[size];
+        String[] labels = new String[size];
+        for (int i = 0; i < size; i++) {
+            Relationships relationship = batch.get(i);
+            bdrIds[i] = relationship.getBdrId();
+            businessEntities[i] = relationship.getBusinessEntity();
+            natures[i] = relationship.getNature();
+            statuses[i] = relationship.getStatus();
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            String[][] columns = {bdrIds, businessEntities, natures, statuses, goldenBdrIds, labels};
+            Array[] arrays = new Array[columns.length];
+            try (PreparedStatement ps = connection.prepareStatement(arrayInsertSql)) {
+                for (int column = 0; column < columns.length; column++) {
+                    arrays[column] = connection.createArrayOf(elementType, columns[column]);
+                    ps.setArray(column + 1, arrays[column]);
+                }
+                return ps.executeUpdate();
+            } finally {
+                for (Array array : arrays) {
+                    if (array != null) {
+                        array.free();
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Non-blocking Maestro client: requests are multiplexed by the JDK client, follow-up work runs on virtual threads
+public final class AsyncMaestroClient {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final AsyncMaestroClient SHARED = new AsyncMaestroClient();
+
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    private AsyncMaestroClient() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    public static AsyncMaestroClient shared() {
+        return SHARED;
+    }
+
+    // Body stays raw bytes, decompression is left to PayloadCodec like on the blocking path
+    public CompletableFuture<HttpResponse<byte[]>> get(String url, Map<String, String> headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept-Encoding", "gzip, deflate")
+            .GET();
+        headers.forEach(request::header);
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // Virtual-thread executor for the decompress/parse stages, so no platform thread is held per request
+    public ExecutorService executor() {
+        return executor;
+    }
+}
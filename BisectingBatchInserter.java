@@ -0,0 +1,198 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+// Inserts a batch so that a few bad rows can't fail it as a whole.
+// Every attempt runs in its own transaction on one connection. When a batch is rejected for a data or
+// constraint error it is rolled back and split in two halves, each retried the same way, until the rows
+// that fail on their own are found; those are written to the quarantine table and everything else is
+// committed. A quarantined row is kept as one JSON payload, so values the target columns reject (too long,
+// wrong format) are stored as received. A clean batch costs one executeBatch and one commit, k bad rows
+// in n cost about 2k * log2(n / k) extra round trips. Errors that are not about the data (lost
+// connection, timeouts, missing table) are rethrown untouched.
+// Batches are inserted through a Load: its id is stored with every row it quarantines, and it counts and
+// logs its own rows, so each load reports its first bad rows whatever happened before it.
+public class BisectingBatchInserter {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // Rows logged one by one per load, the rest are only counted; the quarantine table has them all
+    private static final int MAX_LOGGED_ROWS = 10;
+
+    private final DataSource dataSource;
+    private final String insertSql;
+    private final String quarantineSql;
+
+    // insertSql takes the same 6 parameters as QRY_SAVE_INTERNALRATINGSEVENTS, quarantineSql the load id,
+    // the row as JSON (a text/CLOB column), the SQLState and the error message
+    public BisectingBatchInserter(DataSource dataSource, String insertSql, String quarantineSql) {
+        this.dataSource = dataSource;
+        this.insertSql = insertSql;
+        this.quarantineSql = quarantineSql;
+    }
+
+    // loadId ties quarantined rows to the load that rejected them, e.g. a snapshot date
+    public Load newLoad(String loadId) {
+        return new Load(loadId);
+    }
+
+    private Result insert(Load load, List<Relationships> batch) throws SQLException {
+        // Rows may be retried several times, decode store-backed views only once
+        List<Relationships> rows = new ArrayList<>(batch);
+        Result result = new Result();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                insertOrBisect(load, connection, insert, rows, result);
+            } finally {
+                // The connection goes back to the pool as it was handed out
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return result;
+    }
+
+    private void insertOrBisect(Load load, Connection connection, PreparedStatement insert, List<Relationships> rows,
+                                Result result) throws SQLException {
+        SQLException failure;
+        try {
+            for (Relationships relationship : rows) {
+                InsertStrategy.bindRow(insert, 1, relationship);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+            result.inserted.addAll(rows);
+            return;
+        } catch (SQLException e) {
+            insert.clearBatch();
+            connection.rollback();
+            if (!isDataError(e)) {
+                throw e;
+            }
+            failure = e;
+        }
+
+        if (rows.size() == 1) {
+            quarantine(load, connection, rows.get(0), failure);
+            result.quarantined.add(rows.get(0));
+            return;
+        }
+        load.retriedBatches.incrementAndGet();
+        int mid = rows.size() / 2;
+        insertOrBisect(load, connection, insert, rows.subList(0, mid), result);
+        insertOrBisect(load, connection, insert, rows.subList(mid, rows.size()), result);
+    }
+
+    private void quarantine(Load load, Connection connection, Relationships relationship, SQLException failure) throws SQLException {
+        SQLException cause = rootCause(failure);
+        String message = String.valueOf(cause.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        String payload;
+        try {
+            payload = MaestroCodec.shared().relationshipsWriter().writeValueAsString(relationship);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Unable to serialize rejected row for the quarantine table", failure);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(quarantineSql)) {
+            ps.setString(1, load.loadId);
+            ps.setString(2, payload);
+            ps.setString(3, cause.getSQLState());
+            ps.setString(4, message);
+            ps.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        int quarantined = load.quarantinedRows.incrementAndGet();
+        if (quarantined <= MAX_LOGGED_ROWS) {
+            System.err.println("Load " + load.loadId + " quarantined bdrId " + abbreviate(relationship.getBdrId()) + " / "
+                + abbreviate(relationship.getBusinessEntity()) + ": [" + cause.getSQLState() + "] " + abbreviate(message));
+        }
+        if (quarantined == MAX_LOGGED_ROWS) {
+            System.err.println("Further rows quarantined by load " + load.loadId
+                + " are only counted here, see the quarantine table for each of them");
+        }
+    }
+
+    private static String abbreviate(String value) {
+        return value == null || value.length() <= 100 ? value : value.substring(0, 100) + "...";
+    }
+
+    // SQLState class 22 (data exception) or 23 (integrity constraint violation), anywhere in the chain;
+    // drivers report batch failures as a BatchUpdateException with the row error chained behind it
+    private static boolean isDataError(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current instanceof SQLDataException || current instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            String sqlState = current.getSQLState();
+            if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SQLException rootCause(SQLException e) {
+        SQLException cause = e;
+        while (cause.getNextException() != null) {
+            cause = cause.getNextException();
+        }
+        return cause;
+    }
+
+    // Batches of one load, inserted concurrently by its workers
+    public final class Load {
+        private final String loadId;
+        private final AtomicInteger quarantinedRows = new AtomicInteger();
+        private final AtomicInteger retriedBatches = new AtomicInteger();
+
+        private Load(String loadId) {
+            this.loadId = loadId;
+        }
+
+        public Result insert(List<Relationships> batch) throws SQLException {
+            return BisectingBatchInserter.this.insert(this, batch);
+        }
+
+        public String getLoadId() {
+            return loadId;
+        }
+
+        public int getQuarantinedRows() {
+            return quarantinedRows.get();
+        }
+
+        // Batches of this load that failed and were split
+        public int getRetriedBatches() {
+            return retriedBatches.get();
+        }
+    }
+
+    public static class Result {
+        private final List<Relationships> inserted = new ArrayList<>();
+        private final List<Relationships> quarantined = new ArrayList<>();
+
+        // Rows committed to the target table
+        public List<Relationships> getInserted() {
+            return inserted;
+        }
+
+        // Rows written to the quarantine table instead
+        public List<Relationships> getQuarantined() {
+            return quarantined;
+        }
+    }
+}
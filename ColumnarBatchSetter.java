@@ -0,0 +1,50 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+// Binds QRY_SAVE_INTERNALRATINGSEVENTS parameters straight from a RelationshipColumns buffer.
+// One instance per thread is reused for every batch, so the bind loop itself allocates nothing.
+public final class ColumnarBatchSetter implements BatchPreparedStatementSetter {
+
+    private static final ThreadLocal<ColumnarBatchSetter> PER_THREAD = ThreadLocal.withInitial(ColumnarBatchSetter::new);
+
+    private RelationshipColumns columns;
+
+    private ColumnarBatchSetter() {
+    }
+
+    public static ColumnarBatchSetter forColumns(RelationshipColumns columns) {
+        ColumnarBatchSetter setter = PER_THREAD.get();
+        setter.columns = columns;
+        return setter;
+    }
+
+    // Drops the columns once the batch is sent, the per-thread setter must not keep them reachable
+    public void release() {
+        columns = null;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setString(1, columns.bdrId(i));
+        ps.setString(2, columns.businessEntity(i));
+        ps.setString(3, columns.nature(i));
+        ps.setString(4, columns.status(i));
+        setNullable(ps, 5, columns.goldenBdrId(i));
+        setNullable(ps, 6, columns.label(i));
+    }
+
+    @Override
+    public int getBatchSize() {
+        return columns.size();
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Heap store for multi-million-row snapshots. businessEntity, nature, status and reason labels have a
+// handful of distinct values and are kept as 16-bit dictionary codes (widened to int only if a column
+// ever exceeds 65535 values); bdrIds and goldenBdrIds are UTF-8 bytes packed in one growing arena.
+// A row costs a few dozen bytes instead of the several hundred of a parsed Relationships object graph.
+// Rows are appended by one thread; once filled, the store can be read concurrently.
+public class CompactRelationshipStore implements RelationshipStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringArena bdrIds;
+    private final DictionaryColumn businessEntities;
+    private final DictionaryColumn natures;
+    private final DictionaryColumn statuses;
+    // Reasons of row i are [reasonEnds[i - 1], reasonEnds[i]) in the reason columns
+    private int[] reasonEnds;
+    private final BitSet nullReasonLists = new BitSet();
+    private final StringArena goldenBdrIds;
+    private final DictionaryColumn labels;
+    private int size;
+
+    public CompactRelationshipStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public CompactRelationshipStore(int expectedRows) {
+        int capacity = Math.max(16, expectedRows);
+        bdrIds = new StringArena(capacity);
+        businessEntities = new DictionaryColumn(capacity);
+        natures = new DictionaryColumn(capacity);
+        statuses = new DictionaryColumn(capacity);
+        reasonEnds = new int[capacity];
+        goldenBdrIds = new StringArena(capacity);
+        labels = new DictionaryColumn(capacity);
+    }
+
+    @Override
+    public void add(Relationships relationship) {
+        if (size == reasonEnds.length) {
+            reasonEnds = Arrays.copyOf(reasonEnds, size + (size >> 1));
+        }
+        bdrIds.add(relationship.getBdrId());
+        businessEntities.add(relationship.getBusinessEntity());
+        natures.add(relationship.getNature());
+        statuses.add(relationship.getStatus());
+
+        int reasonCount = size == 0 ? 0 : reasonEnds[size - 1];
+        List<Reasons> reasons = relationship.getReasons();
+        if (reasons == null) {
+            nullReasonLists.set(size);
+        } else {
+            for (Reasons reason : reasons) {
+                goldenBdrIds.add(reason.getGoldenBdrId());
+                labels.add(reason.getLabel());
+            }
+            reasonCount += reasons.size();
+        }
+        reasonEnds[size] = reasonCount;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Relationships get(int index) {
+        checkIndex(index);
+        Relationships relationship = new Relationships();
+        relationship.setBdrId(bdrIds.get(index));
+        relationship.setBusinessEntity(businessEntities.get(index));
+        relationship.setNature(natures.get(index));
+        relationship.setStatus(statuses.get(index));
+        if (!nullReasonLists.get(index)) {
+            int from = reasonStart(index);
+            int to = reasonEnds[index];
+            List<Reasons> reasons = new ArrayList<>(to - from);
+            for (int r = from; r < to; r++) {
+                Reasons reason = new Reasons();
+                reason.setGoldenBdrId(goldenBdrIds.get(r));
+                reason.setLabel(labels.get(r));
+                reasons.add(reason);
+            }
+            relationship.setReasons(reasons);
+        }
+        return relationship;
+    }
+
+    @Override
+    public void copyTo(int from, int to, RelationshipColumns columns) {
+        if (from < 0 || from > to || to > size) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + ", size " + size);
+        }
+        if (from == to) {
+            return;
+        }
+        boolean firstReason = columns.capturesFirstReason();
+        for (int i = from; i < to; i++) {
+            String goldenBdrId = null;
+            String label = null;
+            if (firstReason && reasonEnds[i] > reasonStart(i)) {
+                goldenBdrId = goldenBdrIds.get(reasonStart(i));
+                label = labels.get(reasonStart(i));
+            }
+            columns.add(bdrIds.get(i), businessEntities.get(i), natures.get(i), statuses.get(i), goldenBdrId, label);
+        }
+    }
+
+    @Override
+    public long estimatedHeapBytes() {
+        return bdrIds.heapBytes() + businessEntities.heapBytes() + natures.heapBytes() + statuses.heapBytes()
+            + 4L * reasonEnds.length + nullReasonLists.size() / 8 + goldenBdrIds.heapBytes() + labels.heapBytes();
+    }
+
+    @Override
+    public String toString() {
+        return size + " relationships in ~" + estimatedHeapBytes() / 1024 + " KiB ("
+            + businessEntities.distinct() + " businessEntities, " + natures.distinct() + " natures, "
+            + statuses.distinct() + " statuses, " + labels.distinct() + " reason labels)";
+    }
+
+    private int reasonStart(int index) {
+        return index == 0 ? 0 : reasonEnds[index - 1];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    // Strings as UTF-8 runs in one byte[], row i ending at ends[i]; nulls are flagged, not stored
+    private static class StringArena {
+        private byte[] bytes;
+        private int[] ends;
+        private final BitSet nulls = new BitSet();
+        private int count;
+        private int length;
+
+        StringArena(int capacity) {
+            bytes = new byte[capacity * 8];
+            ends = new int[capacity];
+        }
+
+        void add(String value) {
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count + (count >> 1));
+            }
+            if (value == null) {
+                nulls.set(count);
+            } else {
+                ensureBytes(length + value.length() * 3);
+                length = encode(value, length);
+            }
+            ends[count++] = length;
+        }
+
+        String get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            int start = index == 0 ? 0 : ends[index - 1];
+            return new String(bytes, start, ends[index] - start, StandardCharsets.UTF_8);
+        }
+
+        long heapBytes() {
+            return bytes.length + 4L * ends.length + nulls.size() / 8;
+        }
+
+        // ASCII ids are copied char by char, anything else goes through the UTF-8 encoder
+        private int encode(String value, int offset) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    System.arraycopy(utf8, 0, bytes, offset, utf8.length);
+                    return offset + utf8.length;
+                }
+                bytes[offset + i] = (byte) c;
+            }
+            return offset + value.length();
+        }
+
+        private void ensureBytes(int needed) {
+            if (needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length + (bytes.length >> 1)));
+            }
+        }
+    }
+
+    // Dictionary codes per row, code 0 is null. Stored as char (unsigned 16 bits) until a column
+    // outgrows 65535 distinct values, then widened to int once.
+    private static class DictionaryColumn {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private char[] narrow;
+        private int[] wide;
+        private int count;
+
+        DictionaryColumn(int capacity) {
+            narrow = new char[capacity];
+            values.add(null);
+        }
+
+        void add(String value) {
+            int code = 0;
+            if (value != null) {
+                Integer existing = codes.get(value);
+                if (existing == null) {
+                    existing = values.size();
+                    codes.put(value, existing);
+                    values.add(value);
+                }
+                code = existing;
+            }
+            if (wide == null && code > Character.MAX_VALUE) {
+                wide = new int[narrow.length];
+                for (int i = 0; i < count; i++) {
+                    wide[i] = narrow[i];
+                }
+                narrow = null;
+            }
+            if (wide != null) {
+                if (count == wide.length) {
+                    wide = Arrays.copyOf(wide, count + (count >> 1));
+                }
+                wide[count++] = code;
+            } else {
+                if (count == narrow.length) {
+                    narrow = Arrays.copyOf(narrow, count + (count >> 1));
+                }
+                narrow[count++] = (char) code;
+            }
+        }
+
+        String get(int index) {
+            return values.get(wide != null ? wide[index] : narrow[index]);
+        }
+
+        int distinct() {
+            return values.size() - 1;
+        }
+
+        long heapBytes() {
+            long strings = 0;
+            for (int i = 1; i < values.size(); i++) {
+                strings += 48 + values.get(i).length();
+            }
+            return (wide != null ? 4L * wide.length : 2L * narrow.length) + strings * 2;
+        }
+    }
+}
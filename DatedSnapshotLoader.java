@@ -0,0 +1,99 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.DataSource;
+
+// Replaces the rows of one snapshot date, leaving every other date's rows alone.
+// Rows carry their snapshot date, so the delete is scoped to that date rather than to the keys of the
+// snapshot: dates sharing (bdrId, businessEntity) keys don't remove each other's rows. The delete and the
+// reload run on one connection in one transaction, so a date is either fully replaced or left as it was,
+// and replacing a date twice, e.g. after a crash, is harmless.
+public class DatedSnapshotLoader {
+
+    private final DataSource dataSource;
+    private final String deleteDateSql;
+    private final String insertDatedSql;
+    private final String deleteReasonsDateSql;
+    private final String insertDatedReasonsSql;
+    private final int batchSize;
+
+    // deleteDateSql takes (snapshotDate); insertDatedSql takes the same 6 parameters as
+    // QRY_SAVE_INTERNALRATINGSEVENTS followed by the snapshot date
+    public DatedSnapshotLoader(DataSource dataSource, String deleteDateSql, String insertDatedSql, int batchSize) {
+        this(dataSource, deleteDateSql, insertDatedSql, null, null, batchSize);
+    }
+
+    // insertDatedReasonsSql takes the same 5 parameters as QRY_SAVE_INTERNALRATINGSEVENT_REASONS followed
+    // by the snapshot date; children are deleted before and inserted after their parents
+    public DatedSnapshotLoader(DataSource dataSource, String deleteDateSql, String insertDatedSql,
+                               String deleteReasonsDateSql, String insertDatedReasonsSql, int batchSize) {
+        this.dataSource = dataSource;
+        this.deleteDateSql = deleteDateSql;
+        this.insertDatedSql = insertDatedSql;
+        this.deleteReasonsDateSql = deleteReasonsDateSql;
+        this.insertDatedReasonsSql = insertDatedReasonsSql;
+        this.batchSize = batchSize;
+    }
+
+    // Returns the number of rows loaded for the date
+    public int replace(String snapshotDate, List<Relationships> relationships) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (insertDatedReasonsSql != null) {
+                    deleteDate(connection, deleteReasonsDateSql, snapshotDate);
+                }
+                int deleted = deleteDate(connection, deleteDateSql, snapshotDate);
+                int inserted = insertRows(connection, relationships, snapshotDate);
+                int reasons = insertDatedReasonsSql != null ? insertReasons(connection, relationships, snapshotDate) : 0;
+                connection.commit();
+                System.out.println("Replaced " + deleted + " records of " + snapshotDate + " with " + inserted
+                    + (insertDatedReasonsSql != null ? " records and " + reasons + " reasons" : " records")
+                    + " in " + (System.currentTimeMillis() - startTime) + " ms");
+                return inserted;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                System.err.println("Replacing " + snapshotDate + " failed, its previous rows are kept: " + e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    private int deleteDate(Connection connection, String sql, String snapshotDate) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, snapshotDate);
+            return ps.executeUpdate();
+        }
+    }
+
+    private int insertRows(Connection connection, List<Relationships> relationships, String snapshotDate) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(insertDatedSql)) {
+            for (int i = 0; i < relationships.size(); i++) {
+                InsertStrategy.bindRow(ps, 1, relationships.get(i));
+                ps.setString(7, snapshotDate);
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == relationships.size() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        }
+        return relationships.size();
+    }
+
+    private int insertReasons(Connection connection, List<Relationships> relationships, String snapshotDate) throws SQLException {
+        ReasonsBatchSetter setter = new ReasonsBatchSetter(relationships);
+        try (PreparedStatement ps = connection.prepareStatement(insertDatedReasonsSql)) {
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                setter.setValues(ps, i);
+                ps.setString(6, snapshotDate);
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == setter.getBatchSize() - 1) {
+                    ps.executeBatch();
+                }
+            }
+        }
+        return setter.getBatchSize();
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.List;
+
+// 64-bit hashing of Relationships fields without building intermediate Strings or boxing
+public final class Fingerprints {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long PRIME = 0x100000001B3L;
+    private static final long NULL_MARKER = 0x5bd1e9955bd1e995L;
+
+    private Fingerprints() {
+    }
+
+    // Identity of a row: bdrId + businessEntity
+    public static long key(Relationships relationship) {
+        return mix(hash(hash(SEED, relationship.getBdrId()), relationship.getBusinessEntity()));
+    }
+
+    // Everything that can change for a given key: nature, status and the full reasons list
+    public static long content(Relationships relationship) {
+        long h = hash(hash(SEED, relationship.getNature()), relationship.getStatus());
+        List<Reasons> reasons = relationship.getReasons();
+        if (reasons == null) {
+            h = (h ^ NULL_MARKER) * PRIME;
+        } else {
+            h = (h ^ reasons.size()) * PRIME;
+            for (Reasons reason : reasons) {
+                h = hash(hash(h, reason.getGoldenBdrId()), reason.getLabel());
+            }
+        }
+        return mix(h);
+    }
+
+    // FNV-1a over the UTF-16 chars, the length is folded in so ("ab", "c") and ("a", "bc") differ
+    static long hash(long h, String value) {
+        if (value == null) {
+            return (h ^ NULL_MARKER) * PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * PRIME;
+        }
+        return (h ^ value.length()) * PRIME;
+    }
+
+    // MurmurHash3 finalizer, spreads the bits so the low ones can index an open-addressing table
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
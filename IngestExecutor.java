@@ -0,0 +1,123 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Long-lived executor for blocking JDBC work. It runs exactly as many threads as it may hold connections,
+// so work queues here instead of waiting inside the connection pool. Every snapshot load gets its own
+// Lane; threads take one task per lane in round-robin, so a large load cannot starve a concurrent small one.
+public final class IngestExecutor {
+
+    private final int concurrency;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    // Lanes that have queued tasks, in round-robin order; guarded by lock
+    private final ArrayDeque<Lane> ready = new ArrayDeque<>();
+    private final AtomicInteger laneIds = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public IngestExecutor(int concurrency) {
+        this.concurrency = concurrency;
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(this::work, "ingest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Connections this executor may hold at once: the JDBC pool minus what is left for everything else
+    public static int concurrencyFor(int jdbcPoolSize, int reservedConnections) {
+        return Math.max(1, jdbcPoolSize - reservedConnections);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public Lane newLane(String name) {
+        return new Lane(name + "-" + laneIds.incrementAndGet());
+    }
+
+    // Rejects new tasks; queued ones still run, then the threads exit
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            lock.lock();
+            try {
+                while (ready.isEmpty()) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.awaitUninterruptibly();
+                }
+                Lane lane = ready.pollFirst();
+                task = lane.tasks.pollFirst();
+                if (lane.tasks.isEmpty()) {
+                    lane.queued = false;
+                } else {
+                    ready.addLast(lane);
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // Tasks submitted through a Lane report their failure on the returned future. Errors are
+                // caught too: a thread that died here would lower the concurrency for good.
+                System.err.println("Ingest task failed: " + e);
+            }
+        }
+    }
+
+    // Queue of one load. Also usable as a plain Executor, e.g. for CompletableFuture.runAsync
+    public final class Lane implements Executor {
+        private final String name;
+        // Guarded by IngestExecutor.lock
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean queued;
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        public CompletableFuture<Void> submit(Runnable task) {
+            return CompletableFuture.runAsync(task, this);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            lock.lock();
+            try {
+                if (shutdown) {
+                    throw new IllegalStateException("Ingest executor is shut down, rejected task of " + name);
+                }
+                tasks.addLast(task);
+                if (!queued) {
+                    queued = true;
+                    ready.addLast(this);
+                }
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
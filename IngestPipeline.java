@@ -0,0 +1,382 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// fetch -> decompress/parse -> insert, connected by bounded queues so the three stages overlap: the
+// first batch is inserted while the payload is still being parsed and the next one fetched. A full
+// queue blocks its producer (back-pressure), which caps memory at queue depth x payload/batch size.
+// The first failure in any stage stops every stage and is rethrown by run().
+public class IngestPipeline {
+
+    private static final long POLL_MILLIS = 100;
+    private static final Payload END_OF_PAYLOADS = new Payload(null, null, null);
+    private static final Batch END_OF_BATCHES = new Batch(new ArrayList<>(), null);
+
+    public interface Fetcher {
+        // Compressed body of one unit (page URL, snapshotDate, ...), null to skip the unit
+        Payload fetch(String unit) throws IOException, InterruptedException;
+    }
+
+    public interface BatchSink {
+        // Called concurrently by the insert workers with the unit the rows were parsed from, returns the
+        // number of rows written
+        int insert(String unit, List<Relationships> batch);
+    }
+
+    public interface UnitListener {
+        // Every row of the unit was parsed and written; called once per unit, on an insert worker
+        void loaded(String unit, long rows, long loadMillis);
+    }
+
+    private final Fetcher fetcher;
+    private final BatchSink sink;
+    private final UnitListener unitListener;
+    private final int fetchParallelism;
+    private final int parseParallelism;
+    private final int insertParallelism;
+    private final int batchSize;
+    private final BlockingQueue<Payload> payloads;
+    private final BlockingQueue<Batch> batches;
+    private final StreamingRelationshipReader reader = new StreamingRelationshipReader();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private final StageMetrics fetchMetrics = new StageMetrics("fetch");
+    private final StageMetrics parseMetrics = new StageMetrics("decompress/parse");
+    private final StageMetrics insertMetrics = new StageMetrics("insert");
+
+    public IngestPipeline(Fetcher fetcher, BatchSink sink, int fetchParallelism, int parseParallelism, int insertParallelism,
+                          int payloadQueueDepth, int batchQueueDepth, int batchSize) {
+        this(fetcher, sink, null, fetchParallelism, parseParallelism, insertParallelism, payloadQueueDepth, batchQueueDepth, batchSize);
+    }
+
+    // unitListener may be null; a unit that fails anywhere in the pipeline is never reported
+    public IngestPipeline(Fetcher fetcher, BatchSink sink, UnitListener unitListener, int fetchParallelism, int parseParallelism,
+                          int insertParallelism, int payloadQueueDepth, int batchQueueDepth, int batchSize) {
+        this.fetcher = fetcher;
+        this.sink = sink;
+        this.unitListener = unitListener;
+        this.fetchParallelism = fetchParallelism;
+        this.parseParallelism = parseParallelism;
+        this.insertParallelism = insertParallelism;
+        this.batchSize = batchSize;
+        this.payloads = new ArrayBlockingQueue<>(payloadQueueDepth);
+        this.batches = new ArrayBlockingQueue<>(batchQueueDepth);
+    }
+
+    // Runs every unit through the pipeline once; a pipeline instance is not reusable
+    public Map<String, StageMetrics> run(List<String> units) throws IOException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+        ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>(units);
+
+        // Fetching waits on the network, virtual threads are enough; parsing and inserting get platform threads
+        ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+        ExecutorService parsers = Executors.newFixedThreadPool(parseParallelism);
+        ExecutorService inserters = Executors.newFixedThreadPool(insertParallelism);
+        try {
+            for (int i = 0; i < insertParallelism; i++) {
+                inserters.execute(this::insertLoop);
+            }
+            for (int i = 0; i < parseParallelism; i++) {
+                parsers.execute(this::parseLoop);
+            }
+            for (int i = 0; i < fetchParallelism; i++) {
+                fetchers.execute(() -> fetchLoop(pending));
+            }
+
+            // Each stage ends by telling every worker of the next one that nothing more will come
+            fetchers.shutdown();
+            fetchers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < parseParallelism; i++) {
+                offer(payloads, END_OF_PAYLOADS, null);
+            }
+            parsers.shutdown();
+            parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < insertParallelism; i++) {
+                offer(batches, END_OF_BATCHES, null);
+            }
+            inserters.shutdown();
+            inserters.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            fetchers.shutdownNow();
+            parsers.shutdownNow();
+            inserters.shutdownNow();
+        }
+
+        Map<String, StageMetrics> metrics = getMetrics();
+        System.out.println("Ingest pipeline " + (failure.get() == null ? "finished" : "failed") + " in "
+            + (System.currentTimeMillis() - startTime) + " ms");
+        metrics.values().forEach(stage -> System.out.println("  " + stage));
+
+        Exception error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new IOException("Ingest pipeline failed", error);
+        }
+        return metrics;
+    }
+
+    public Map<String, StageMetrics> getMetrics() {
+        Map<String, StageMetrics> metrics = new LinkedHashMap<>();
+        metrics.put(fetchMetrics.name, fetchMetrics);
+        metrics.put(parseMetrics.name, parseMetrics);
+        metrics.put(insertMetrics.name, insertMetrics);
+        return metrics;
+    }
+
+    private void fetchLoop(ConcurrentLinkedQueue<String> pending) {
+        String unit;
+        while (failure.get() == null && (unit = pending.poll()) != null) {
+            try {
+                long start = System.nanoTime();
+                Payload payload = fetcher.fetch(unit);
+                if (payload == null) {
+                    continue;
+                }
+                offer(payloads, payload, fetchMetrics);
+                fetchMetrics.record(1, payload.body.length, System.nanoTime() - start);
+            } catch (Exception e) {
+                fail("fetch of " + unit, e);
+            }
+        }
+    }
+
+    private void parseLoop() {
+        try {
+            Payload payload;
+            while ((payload = next(payloads)) != END_OF_PAYLOADS) {
+                long start = System.nanoTime();
+                int rows = 0;
+                UnitProgress unit = new UnitProgress(payload.unit, start);
+                List<Relationships> batch = new ArrayList<>(batchSize);
+                try (StreamingRelationshipReader.RelationshipIterator relationships =
+                         reader.open(PayloadCodec.shared().decodingStream(new ByteArrayInputStream(payload.body), payload.contentEncoding))) {
+                    while (relationships.hasNext()) {
+                        batch.add(relationships.next());
+                        rows++;
+                        if (batch.size() == batchSize) {
+                            unit.batchQueued();
+                            offer(batches, new Batch(batch, unit), parseMetrics);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    unit.batchQueued();
+                    offer(batches, new Batch(batch, unit), parseMetrics);
+                }
+                parseMetrics.record(1, rows, System.nanoTime() - start);
+                // The parser's own hold: a unit whose batches were all written before this point completes here
+                completed(unit, 0);
+            }
+        } catch (Exception e) {
+            fail("parse of a payload", e);
+        }
+    }
+
+    private void insertLoop() {
+        try {
+            Batch batch;
+            while ((batch = next(batches)) != END_OF_BATCHES) {
+                long start = System.nanoTime();
+                int inserted = sink.insert(batch.unit.unit, batch.rows);
+                insertMetrics.record(1, inserted, System.nanoTime() - start);
+                completed(batch.unit, inserted);
+            }
+        } catch (Exception e) {
+            fail("insert", e);
+        }
+    }
+
+    private void completed(UnitProgress unit, int rows) {
+        if (unit.release(rows) && unitListener != null) {
+            unitListener.loaded(unit.unit, unit.rows.get(), (System.nanoTime() - unit.startNanos) / 1_000_000);
+        }
+    }
+
+    // Waits for the next item, or aborts this worker once another stage has failed
+    private <T> T next(BlockingQueue<T> queue) throws InterruptedException {
+        while (true) {
+            if (failure.get() != null) {
+                throw new PipelineAbortedException();
+            }
+            T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+    }
+
+    // Blocks while the queue is full (time counted as the producer's blocked time), gives up once
+    // another stage has failed; end markers are then dropped, the workers stop on the failure itself
+    private <T> void offer(BlockingQueue<T> queue, T item, StageMetrics producer) {
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    if (producer == null) {
+                        return;
+                    }
+                    throw new PipelineAbortedException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineAbortedException();
+        }
+        if (producer != null) {
+            producer.recordHandOff(queue.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void fail(String stage, Exception e) {
+        if (e instanceof PipelineAbortedException) {
+            return;
+        }
+        if (failure.compareAndSet(null, e)) {
+            System.err.println("Ingest pipeline " + stage + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public static class Payload {
+        private final String unit;
+        private final byte[] body;
+        private final String contentEncoding;
+
+        public Payload(String unit, byte[] body, String contentEncoding) {
+            this.unit = unit;
+            this.body = body;
+            this.contentEncoding = contentEncoding;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+    }
+
+    private static class Batch {
+        private final List<Relationships> rows;
+        private final UnitProgress unit;
+
+        Batch(List<Relationships> rows, UnitProgress unit) {
+            this.rows = rows;
+            this.unit = unit;
+        }
+    }
+
+    // Batches of one unit not yet written, plus one held by the parser until the whole payload is read
+    private static class UnitProgress {
+        private final String unit;
+        private final long startNanos;
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicLong rows = new AtomicLong();
+
+        UnitProgress(String unit, long startNanos) {
+            this.unit = unit;
+            this.startNanos = startNanos;
+        }
+
+        void batchQueued() {
+            pending.incrementAndGet();
+        }
+
+        // True for the release that completes the unit
+        boolean release(int writtenRows) {
+            rows.addAndGet(writtenRows);
+            return pending.decrementAndGet() == 0;
+        }
+    }
+
+    // Items and volume (bytes for fetch, rows for parse/insert) per stage, time summed over its workers,
+    // time blocked on back-pressure, and depth of the queue it feeds sampled at every hand-off
+    public static class StageMetrics {
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong volume = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private final AtomicLong queueSamples = new AtomicLong();
+        private final AtomicLong queueDepthSum = new AtomicLong();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+
+        StageMetrics(String name) {
+            this.name = name;
+        }
+
+        // elapsedNanos includes the hand-offs of the item, their blocked time is excluded from throughput
+        void record(long itemCount, long itemVolume, long elapsedNanos) {
+            items.addAndGet(itemCount);
+            volume.addAndGet(itemVolume);
+            busyNanos.addAndGet(elapsedNanos);
+        }
+
+        void recordHandOff(int queueDepth, long blockedNanos) {
+            this.blockedNanos.addAndGet(blockedNanos);
+            queueSamples.incrementAndGet();
+            queueDepthSum.addAndGet(queueDepth);
+            maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getItems() {
+            return items.get();
+        }
+
+        public long getVolume() {
+            return volume.get();
+        }
+
+        public long getBlockedMillis() {
+            return blockedNanos.get() / 1_000_000;
+        }
+
+        // Volume per second of worker time spent working, i.e. not blocked on a full output queue
+        public double getThroughput() {
+            return volume.get() / Math.max(1e-9, (busyNanos.get() - blockedNanos.get()) / 1_000_000_000.0);
+        }
+
+        public double getAverageQueueDepth() {
+            long samples = queueSamples.get();
+            return samples == 0 ? 0 : queueDepthSum.get() / (double) samples;
+        }
+
+        public long getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        @Override
+        public String toString() {
+            String summary = name + ": " + items.get() + " items, " + volume.get() + (name.equals("fetch") ? " bytes" : " rows")
+                + ", " + String.format("%.2f", getThroughput()) + "/second busy";
+            if (queueSamples.get() == 0) {
+                return summary;
+            }
+            return summary + ", blocked " + getBlockedMillis() + " ms, output queue avg "
+                + String.format("%.1f", getAverageQueueDepth()) + " max " + getMaxQueueDepth();
+        }
+    }
+
+    private static class PipelineAbortedException extends RuntimeException {
+        PipelineAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// How a batch of Relationships rows reaches INTERNALRATINGSEVENTS. Every implementation writes the same
+// six columns with the same values, they only differ in how the rows are shipped to the database.
+// Strategies binding row by row go through bindRow; ArrayBindingInsertStrategy builds one array per
+// column instead (createArrayOf, unnest on the server), so a change to the values here must be made there too.
+public interface InsertStrategy {
+
+    // Returns the number of rows inserted
+    int insert(JdbcTemplate jdbcTemplate, List<Relationships> batch);
+
+    // Binds one row to the six placeholders starting at firstIndex, in QRY_SAVE_INTERNALRATINGSEVENTS order
+    static void bindRow(PreparedStatement ps, int firstIndex, Relationships relationship) throws SQLException {
+        ps.setString(firstIndex, relationship.getBdrId());
+        ps.setString(firstIndex + 1, relationship.getBusinessEntity());
+        ps.setString(firstIndex + 2, relationship.getNature());
+        ps.setString(firstIndex + 3, relationship.getStatus());
+        ps.setNull(firstIndex + 4, Types.VARCHAR); // Skipping reason.getGoldenBdrId()
+        ps.setNull(firstIndex + 5, Types.VARCHAR); // Skipping reason.getLabel()
+    }
+}
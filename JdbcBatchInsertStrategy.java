@@ -0,0 +1,46 @@
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// One single-row INSERT per record, sent with JDBC batching; works on every driver
+public class JdbcBatchInsertStrategy implements InsertStrategy {
+
+    private final String insertSql;
+
+    public JdbcBatchInsertStrategy(String insertSql) {
+        this.insertSql = insertSql;
+    }
+
+    @Override
+    public int insert(JdbcTemplate jdbcTemplate, List<Relationships> batch) {
+        // Reason columns are left NULL, as in InsertStrategy.bindRow
+        RelationshipColumns columns = RelationshipColumns.forCurrentThread(false);
+        try {
+            if (batch instanceof RelationshipStore.Rows) {
+                // Decoded from the store straight into the columns
+                ((RelationshipStore.Rows) batch).copyTo(columns);
+            } else {
+                columns.addAll(batch);
+            }
+            return insert(jdbcTemplate, columns);
+        } finally {
+            columns.release();
+        }
+    }
+
+    // For callers that filled the columns while parsing, no Relationships objects involved
+    public int insert(JdbcTemplate jdbcTemplate, RelationshipColumns columns) {
+        ColumnarBatchSetter setter = ColumnarBatchSetter.forColumns(columns);
+        int[] updateCounts;
+        try {
+            updateCounts = jdbcTemplate.batchUpdate(insertSql, setter);
+        } finally {
+            setter.release();
+        }
+        // Some drivers report SUCCESS_NO_INFO (-2) per row instead of a count
+        int inserted = 0;
+        for (int count : updateCounts) {
+            inserted += count < 0 ? 1 : count;
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,99 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+public final class MaestroCodec {
+
+    private static final MaestroCodec SHARED = new MaestroCodec();
+    private static final int WARM_UP_ITERATIONS = 500;
+    private static final String WARM_UP_SAMPLE =
+        "[{\"relationships\":[{\"bdrId\":\"0\",\"businessEntity\":\"BE\",\"nature\":\"N\",\"status\":\"S\","
+        + "\"reasons\":[{\"goldenBdrId\":\"0\",\"label\":\"L\"}]}],\"reasons\":[{\"goldenBdrId\":\"0\",\"label\":\"L\"}]},"
+        + "{\"relationships\":{\"bdrId\":\"1\",\"reasons\":[]},\"unknown\":{\"nested\":[1,2]}}]";
+
+    private final ObjectMapper mapperObj;
+    private final ObjectReader eventReader;
+    private final ObjectReader eventListReader;
+    private final ObjectReader relationshipsReader;
+    private final ObjectReader reasonsReader;
+    private final ObjectWriter relationshipsWriter;
+    private volatile boolean warmedUp;
+
+    private MaestroCodec() {
+        mapperObj = new ObjectMapper();
+        mapperObj.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+        mapperObj.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        // ObjectReaders are immutable and thread-safe, they share the mapper's deserializer cache
+        eventReader = mapperObj.readerFor(ResponseInternalRatingsEvent.class);
+        eventListReader = mapperObj.readerFor(new TypeReference<List<ResponseInternalRatingsEvent>>() {});
+        relationshipsReader = mapperObj.readerFor(Relationships.class);
+        reasonsReader = mapperObj.readerFor(Reasons.class);
+        relationshipsWriter = mapperObj.writerFor(Relationships.class);
+    }
+
+    public static MaestroCodec shared() {
+        return SHARED;
+    }
+
+    public ObjectReader eventReader() {
+        return eventReader;
+    }
+
+    public ObjectReader eventListReader() {
+        return eventListReader;
+    }
+
+    public ObjectReader relationshipsReader() {
+        return relationshipsReader;
+    }
+
+    public ObjectReader reasonsReader() {
+        return reasonsReader;
+    }
+
+    // Same shape relationshipsReader reads, e.g. to keep a row that can't be loaded as it was received
+    public ObjectWriter relationshipsWriter() {
+        return relationshipsWriter;
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return mapperObj.readerFor(type);
+    }
+
+    public ObjectReader readerFor(TypeReference<?> type) {
+        return mapperObj.readerFor(type);
+    }
+
+    public JsonFactory getFactory() {
+        return mapperObj.getFactory();
+    }
+
+    // Call once at application startup so the first snapshot doesn't pay for introspection and JIT
+    public synchronized void warmUp() {
+        if (warmedUp) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                List<ResponseInternalRatingsEvent> events = eventListReader.readValue(WARM_UP_SAMPLE);
+                eventReader.readValue("{\"relationships\":[{\"bdrId\":\"0\"}]}");
+                relationshipsReader.readValue("{\"bdrId\":\"0\",\"reasons\":[{\"label\":\"L\"}]}");
+                reasonsReader.readValue("{\"goldenBdrId\":\"0\",\"label\":\"L\"}");
+                RatingsEventAggregator.merge(events);
+            }
+            warmedUp = true;
+            System.out.println("Maestro codec warmed up in " + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (IOException e) {
+            System.err.println("Error warming up Maestro codec: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
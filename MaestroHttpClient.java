@@ -0,0 +1,264 @@
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.util.EntityUtils;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// One long-lived, pooled client for every Maestro call so connections (and their TLS sessions) are reused
+public final class MaestroHttpClient implements Closeable {
+
+    private static final int DEFAULT_TIMEOUT_MILLIS = 300000; // 5 minutes
+    private static final int DEFAULT_MAX_TOTAL = 32;
+    private static final int DEFAULT_MAX_PER_ROUTE = 8;
+    private static final long DEFAULT_IDLE_EVICTION_SECONDS = 30;
+    private static final long DEFAULT_KEEP_ALIVE_MILLIS = 60000;
+    private static final String TIMINGS_ATTRIBUTE = "maestro.request.timings";
+
+    private static final String CONFIG_PREFIX = "maestro.http.";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong leaseSamples = new AtomicLong();
+    private final AtomicLong totalLeaseMillis = new AtomicLong();
+    private final AtomicLong totalTimeToFirstByteMillis = new AtomicLong();
+
+    public MaestroHttpClient(int maxTotal, int maxPerRoute, long idleEvictionSeconds, long keepAliveMillis) {
+        this(maxTotal, maxPerRoute, idleEvictionSeconds, keepAliveMillis, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public MaestroHttpClient(int maxTotal, int maxPerRoute, long idleEvictionSeconds, long keepAliveMillis, int timeoutMillis) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        RequestConfig config = RequestConfig.custom()
+            .setConnectTimeout(timeoutMillis)
+            .setConnectionRequestTimeout(timeoutMillis)
+            .setSocketTimeout(timeoutMillis)
+            .build();
+
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(config)
+            // Negotiated here once; PayloadCodec does the decoding, so the client must hand over the raw bytes
+            .setDefaultHeaders(Collections.singletonList(new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")))
+            .disableContentCompression()
+            .setKeepAliveStrategy((response, context) -> {
+                long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(idleEvictionSeconds, TimeUnit.SECONDS)
+            .setRequestExecutor(new TimingRequestExecutor())
+            .build();
+    }
+
+    // Built on first use from the maestro.http.* settings, see fromConfiguration
+    public static MaestroHttpClient shared() {
+        return SharedHolder.SHARED;
+    }
+
+    // Pool and timeout limits from max-total, max-per-route, idle-eviction-seconds, keep-alive-millis and
+    // timeout-millis under maestro.http., looked up as -D system properties, then as MAESTRO_HTTP_*
+    // environment variables; anything unset keeps its default
+    public static MaestroHttpClient fromConfiguration(Function<String, String> lookup) {
+        return new MaestroHttpClient(
+            (int) setting(lookup, "max-total", DEFAULT_MAX_TOTAL),
+            (int) setting(lookup, "max-per-route", DEFAULT_MAX_PER_ROUTE),
+            setting(lookup, "idle-eviction-seconds", DEFAULT_IDLE_EVICTION_SECONDS),
+            setting(lookup, "keep-alive-millis", DEFAULT_KEEP_ALIVE_MILLIS),
+            (int) setting(lookup, "timeout-millis", DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    static String systemSetting(String key) {
+        String value = System.getProperty(key);
+        return value != null ? value : System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+    }
+
+    private static long setting(Function<String, String> lookup, String name, long defaultValue) {
+        String value = lookup.apply(CONFIG_PREFIX + name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        long parsed;
+        try {
+            parsed = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + CONFIG_PREFIX + name + ": " + value, e);
+        }
+        if (parsed <= 0 || parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid " + CONFIG_PREFIX + name + ": " + value);
+        }
+        return parsed;
+    }
+
+    public Response get(String url, Header... headers) throws IOException {
+        HttpGet request = new HttpGet(url);
+        request.setHeaders(headers);
+
+        RequestTimings timings = new RequestTimings(true);
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(TIMINGS_ATTRIBUTE, timings);
+
+        try (CloseableHttpResponse response = httpClient.execute(request, context)) {
+            HttpEntity entity = response.getEntity();
+            byte[] body = entity != null ? EntityUtils.toByteArray(entity) : new byte[0];
+            return new Response(response.getStatusLine().getStatusCode(), body, response.getAllHeaders(), timings);
+        }
+    }
+
+    // Lets RestTemplate callers share the same pool and Accept-Encoding negotiation
+    public ClientHttpRequestFactory requestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    // Only over requests made through get(): RestTemplate calls reach the client without our context, so
+    // their wait for a connection can't be measured and they are left out instead of counted as 0
+    public double getAverageLeaseMillis() {
+        return totalLeaseMillis.get() / (double) Math.max(1, leaseSamples.get());
+    }
+
+    public long getLeaseSamples() {
+        return leaseSamples.get();
+    }
+
+    public int getMaxTotal() {
+        return connectionManager.getMaxTotal();
+    }
+
+    public int getMaxPerRoute() {
+        return connectionManager.getDefaultMaxPerRoute();
+    }
+
+    public double getAverageTimeToFirstByteMillis() {
+        return totalTimeToFirstByteMillis.get() / (double) Math.max(1, requestCount.get());
+    }
+
+    public String getPoolStats() {
+        return connectionManager.getTotalStats().toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private static class SharedHolder {
+        static final MaestroHttpClient SHARED = fromConfiguration(MaestroHttpClient::systemSetting);
+    }
+
+    public static class Response {
+        private final int status;
+        private final byte[] body;
+        private final Header[] headers;
+        private final RequestTimings timings;
+
+        Response(int status, byte[] body, Header[] headers, RequestTimings timings) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+            this.timings = timings;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getHeader(String name) {
+            for (Header header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+
+        // Time spent waiting for a pooled connection, plus connect/TLS when a new one had to be opened
+        public long getConnectionLeaseMillis() {
+            return timings.leaseMillis();
+        }
+
+        // From the request being written on the leased connection to the response headers being read
+        public long getTimeToFirstByteMillis() {
+            return timings.timeToFirstByteMillis();
+        }
+    }
+
+    static class RequestTimings {
+        private final long startNanos = System.nanoTime();
+        // False when the request started outside get(), the lease then began before startNanos
+        private final boolean leaseMeasured;
+        private volatile long leasedNanos;
+        private volatile long firstByteNanos;
+
+        RequestTimings(boolean leaseMeasured) {
+            this.leaseMeasured = leaseMeasured;
+        }
+
+        long leaseMillis() {
+            return leasedNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(leasedNanos - startNanos);
+        }
+
+        long timeToFirstByteMillis() {
+            return firstByteNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(firstByteNanos - leasedNanos);
+        }
+    }
+
+    // The executor only runs once a connection is leased and connected, which makes it the natural timing hook
+    private class TimingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws IOException, HttpException {
+            RequestTimings timings = (RequestTimings) context.getAttribute(TIMINGS_ATTRIBUTE);
+            if (timings == null) {
+                // RestTemplate requests come without our context, time them from here for the aggregate figures
+                timings = new RequestTimings(false);
+                context.setAttribute(TIMINGS_ATTRIBUTE, timings);
+            }
+            timings.leasedNanos = System.nanoTime();
+            HttpResponse response = super.execute(request, conn, context);
+            timings.firstByteNanos = System.nanoTime();
+
+            requestCount.incrementAndGet();
+            if (timings.leaseMeasured) {
+                leaseSamples.incrementAndGet();
+                totalLeaseMillis.addAndGet(timings.leaseMillis());
+            }
+            totalTimeToFirstByteMillis.addAndGet(timings.timeToFirstByteMillis());
+            return response;
+        }
+    }
+}
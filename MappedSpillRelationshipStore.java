@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Off-heap store for snapshots larger than the heap budget. Rows are written back to back into
+// memory-mapped segment files and read back from the page cache, so the heap only holds a sparse
+// index (one offset per INDEX_STRIDE rows) and the segment mappings. Segment files are deleted on close.
+// Row layout: bdrId, businessEntity, nature, status, reason count (-1 for a null list), then
+// goldenBdrId, label per reason; every string is an int byte length (-1 for null) followed by UTF-8.
+// Rows are appended by one thread; once filled, the store can be read concurrently.
+public class MappedSpillRelationshipStore implements RelationshipStore {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+    private static final int INDEX_STRIDE = 64;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Path> segmentFiles = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // Position of every INDEX_STRIDE-th row: segment index in the high 32 bits, offset in the low ones
+    private long[] index = new long[1024];
+    // First row of every segment, a cursor moves to the next segment when it reaches that row
+    private int[] segmentFirstRows = new int[16];
+    private int size;
+    private MappedByteBuffer current;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private long mappedBytes;
+
+    public MappedSpillRelationshipStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedSpillRelationshipStore(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void add(Relationships relationship) {
+        scratch.clear();
+        writeString(relationship.getBdrId());
+        writeString(relationship.getBusinessEntity());
+        writeString(relationship.getNature());
+        writeString(relationship.getStatus());
+        List<Reasons> reasons = relationship.getReasons();
+        ensureScratch(4);
+        scratch.putInt(reasons == null ? -1 : reasons.size());
+        if (reasons != null) {
+            for (Reasons reason : reasons) {
+                writeString(reason.getGoldenBdrId());
+                writeString(reason.getLabel());
+            }
+        }
+        scratch.flip();
+
+        // Rows never straddle two segments
+        if (current == null || current.remaining() < scratch.remaining()) {
+            newSegment(scratch.remaining());
+        }
+        if (size % INDEX_STRIDE == 0) {
+            int slot = size / INDEX_STRIDE;
+            if (slot == index.length) {
+                index = Arrays.copyOf(index, slot * 2);
+            }
+            index[slot] = (long) (segments.size() - 1) << 32 | current.position();
+        }
+        current.put(scratch);
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Relationships get(int row) {
+        Cursor cursor = seek(row);
+        Relationships relationship = new Relationships();
+        relationship.setBdrId(cursor.readString());
+        relationship.setBusinessEntity(cursor.readString());
+        relationship.setNature(cursor.readString());
+        relationship.setStatus(cursor.readString());
+        int reasonCount = cursor.readInt();
+        if (reasonCount >= 0) {
+            List<Reasons> reasons = new ArrayList<>(reasonCount);
+            for (int r = 0; r < reasonCount; r++) {
+                Reasons reason = new Reasons();
+                reason.setGoldenBdrId(cursor.readString());
+                reason.setLabel(cursor.readString());
+                reasons.add(reason);
+            }
+            relationship.setReasons(reasons);
+        }
+        return relationship;
+    }
+
+    // Sequential scan from the nearest index entry, the whole range is decoded in one pass
+    @Override
+    public void copyTo(int from, int to, RelationshipColumns columns) {
+        if (from < 0 || from > to || to > size) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + ", size " + size);
+        }
+        if (from == to) {
+            return;
+        }
+        Cursor cursor = seek(from);
+        boolean firstReason = columns.capturesFirstReason();
+        for (int row = from; row < to; row++) {
+            cursor.startRow(row);
+            String bdrId = cursor.readString();
+            String businessEntity = cursor.readString();
+            String nature = cursor.readString();
+            String status = cursor.readString();
+            String goldenBdrId = null;
+            String label = null;
+            int reasonCount = cursor.readInt();
+            for (int r = 0; r < reasonCount; r++) {
+                if (r == 0 && firstReason) {
+                    goldenBdrId = cursor.readString();
+                    label = cursor.readString();
+                } else {
+                    cursor.skipString();
+                    cursor.skipString();
+                }
+            }
+            columns.add(bdrId, businessEntity, nature, status, goldenBdrId, label);
+        }
+    }
+
+    @Override
+    public long estimatedHeapBytes() {
+        return 8L * index.length + scratch.capacity() + 64L * segments.size();
+    }
+
+    public long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+        current = null;
+        for (Path file : segmentFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error deleting spill segment " + file + ": " + e.getMessage());
+            }
+        }
+        segmentFiles.clear();
+    }
+
+    @Override
+    public String toString() {
+        return size + " relationships spilled to " + segments.size() + " segments (" + mappedBytes / (1024 * 1024)
+            + " MiB mapped) in " + directory;
+    }
+
+    private Cursor seek(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Index " + row + ", size " + size);
+        }
+        int indexed = row - row % INDEX_STRIDE;
+        long position = index[row / INDEX_STRIDE];
+        Cursor cursor = new Cursor((int) (position >>> 32), (int) position);
+        for (int skipped = indexed; skipped < row; skipped++) {
+            cursor.startRow(skipped);
+            cursor.skipRow();
+        }
+        cursor.startRow(row);
+        return cursor;
+    }
+
+    private void newSegment(int minimumSize) {
+        try {
+            Path file = Files.createTempFile(directory, "relationships-", ".seg");
+            segmentFiles.add(file);
+            int length = Math.max(segmentSize, minimumSize);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                current = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            }
+            segments.add(current);
+            if (segments.size() > segmentFirstRows.length) {
+                segmentFirstRows = Arrays.copyOf(segmentFirstRows, segmentFirstRows.length * 2);
+            }
+            segmentFirstRows[segments.size() - 1] = size;
+            mappedBytes += length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creating spill segment in " + directory, e);
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            ensureScratch(4);
+            scratch.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureScratch(4 + bytes.length);
+        scratch.putInt(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensureScratch(int needed) {
+        if (scratch.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + needed));
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+    }
+
+    // Absolute reads only, so concurrent readers never share buffer position state
+    private final class Cursor {
+        private int segmentIndex;
+        private ByteBuffer segment;
+        private int position;
+
+        Cursor(int segmentIndex, int position) {
+            this.segmentIndex = segmentIndex;
+            this.segment = segments.get(segmentIndex);
+            this.position = position;
+        }
+
+        // Rows never straddle segments: a row that opened a new segment starts at its offset 0
+        void startRow(int row) {
+            if (segmentIndex + 1 < segments.size() && segmentFirstRows[segmentIndex + 1] == row) {
+                segmentIndex++;
+                segment = segments.get(segmentIndex);
+                position = 0;
+            }
+        }
+
+        int readInt() {
+            int value = segment.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            segment.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skipString() {
+            int length = readInt();
+            if (length > 0) {
+                position += length;
+            }
+        }
+
+        void skipRow() {
+            for (int field = 0; field < 4; field++) {
+                skipString();
+            }
+            int reasonCount = readInt();
+            for (int r = 0; r < reasonCount * 2; r++) {
+                skipString();
+            }
+        }
+    }
+}
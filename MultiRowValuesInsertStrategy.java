@@ -0,0 +1,70 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// INSERT ... VALUES (...),(...),... with many rows per statement: one round trip and one statement
+// execution per chunk instead of per row. Derived from the single-row insert, so no extra query is needed.
+public class MultiRowValuesInsertStrategy implements InsertStrategy {
+
+    private static final int COLUMNS = 6;
+
+    private final String insertPrefix;
+    private final String rowPlaceholders;
+    private final int rowsPerStatement;
+    private final String fullChunkSql;
+
+    // rowsPerStatement * 6 must stay under the driver's bind parameter limit (2100 on SQL Server, 32767 on Oracle/PostgreSQL)
+    public MultiRowValuesInsertStrategy(String singleRowInsertSql, int rowsPerStatement) {
+        int values = singleRowInsertSql.toUpperCase(Locale.ROOT).lastIndexOf("VALUES");
+        if (values < 0) {
+            throw new IllegalArgumentException("Expected an INSERT ... VALUES (...) statement: " + singleRowInsertSql);
+        }
+        this.insertPrefix = singleRowInsertSql.substring(0, values + "VALUES".length()) + " ";
+        this.rowPlaceholders = singleRowInsertSql.substring(values + "VALUES".length()).trim();
+        this.rowsPerStatement = rowsPerStatement;
+        this.fullChunkSql = sqlFor(rowsPerStatement);
+    }
+
+    @Override
+    public int insert(JdbcTemplate jdbcTemplate, List<Relationships> batch) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            int inserted = 0;
+            try (PreparedStatement full = connection.prepareStatement(fullChunkSql)) {
+                int start = 0;
+                for (; start + rowsPerStatement <= batch.size(); start += rowsPerStatement) {
+                    bindChunk(full, batch, start, rowsPerStatement);
+                    inserted += full.executeUpdate();
+                }
+                int remaining = batch.size() - start;
+                if (remaining > 0) {
+                    try (PreparedStatement tail = connection.prepareStatement(sqlFor(remaining))) {
+                        bindChunk(tail, batch, start, remaining);
+                        inserted += tail.executeUpdate();
+                    }
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private static void bindChunk(PreparedStatement ps, List<Relationships> batch, int start, int rows) throws SQLException {
+        for (int row = 0; row < rows; row++) {
+            InsertStrategy.bindRow(ps, row * COLUMNS + 1, batch.get(start + row));
+        }
+    }
+
+    private String sqlFor(int rows) {
+        StringBuilder sql = new StringBuilder(insertPrefix.length() + rows * (rowPlaceholders.length() + 1));
+        sql.append(insertPrefix);
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(',');
+            }
+            sql.append(rowPlaceholders);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,180 @@
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Parses a decompressed List<ResponseInternalRatingsEvent> on all cores. One byte scan finds where every
+// top-level array element starts and ends (string-aware, so brackets inside values don't count), then
+// ranges of elements are deserialized by fork/join tasks into their original slots. Anything that is
+// not a top-level array, or too small to be worth splitting, goes through the sequential reader, so the
+// result is always the same list eventListReader would produce.
+public final class ParallelEventParser {
+
+    private static final int MIN_PARALLEL_BYTES = 1024 * 1024;
+    private static final int MIN_TASK_BYTES = 256 * 1024;
+
+    private static final ParallelEventParser SHARED = new ParallelEventParser(Runtime.getRuntime().availableProcessors());
+
+    // Own pool: parsing is CPU-bound and must not queue behind (or block) work in the common pool
+    private final ForkJoinPool pool;
+    private final MaestroCodec codec = MaestroCodec.shared();
+    private final int minParallelBytes;
+    private final int minTaskBytes;
+
+    public ParallelEventParser(int parallelism) {
+        this(parallelism, MIN_PARALLEL_BYTES, MIN_TASK_BYTES);
+    }
+
+    // Lower thresholds let tests split small payloads down to one element per task
+    ParallelEventParser(int parallelism, int minParallelBytes, int minTaskBytes) {
+        pool = new ForkJoinPool(parallelism);
+        this.minParallelBytes = minParallelBytes;
+        this.minTaskBytes = minTaskBytes;
+    }
+
+    public static ParallelEventParser shared() {
+        return SHARED;
+    }
+
+    public List<ResponseInternalRatingsEvent> parse(byte[] json) throws IOException {
+        int[] bounds = json.length >= minParallelBytes && pool.getParallelism() > 1 ? elementBoundaries(json) : null;
+        if (bounds == null || bounds.length < 4) {
+            return codec.eventListReader().readValue(json);
+        }
+
+        ResponseInternalRatingsEvent[] events = new ResponseInternalRatingsEvent[bounds.length / 2];
+        try {
+            pool.invoke(new ParseTask(codec.eventReader(), json, bounds, events, 0, events.length, minTaskBytes));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return Arrays.asList(events);
+    }
+
+    // Flat [start0, end0, start1, end1, ...] of the top-level array elements, or null if the payload
+    // is not a well-formed top-level array (the sequential reader then reports the actual error)
+    static int[] elementBoundaries(byte[] json) {
+        int i = 0;
+        while (i < json.length && isWhitespace(json[i])) {
+            i++;
+        }
+        if (i == json.length || json[i] != '[') {
+            return null;
+        }
+
+        int[] bounds = new int[64];
+        int count = 0;
+        int depth = 0;
+        int elementStart = -1;
+        for (i++; i < json.length; i++) {
+            byte b = json[i];
+            switch (b) {
+                case '"':
+                    if (depth == 0 && elementStart < 0) {
+                        elementStart = i;
+                    }
+                    // Skip the string body, escaped quotes included
+                    for (i++; i < json.length && json[i] != '"'; i++) {
+                        if (json[i] == '\\') {
+                            i++;
+                        }
+                    }
+                    break;
+                case '{':
+                case '[':
+                    if (depth == 0 && elementStart < 0) {
+                        elementStart = i;
+                    }
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        if (b != ']') {
+                            return null;
+                        }
+                        if (elementStart >= 0) {
+                            bounds = append(bounds, count, elementStart, i);
+                            count += 2;
+                        }
+                        return Arrays.copyOf(bounds, count);
+                    }
+                    depth--;
+                    break;
+                case ',':
+                    if (depth == 0) {
+                        if (elementStart < 0) {
+                            return null;
+                        }
+                        bounds = append(bounds, count, elementStart, i);
+                        count += 2;
+                        elementStart = -1;
+                    }
+                    break;
+                default:
+                    if (depth == 0 && elementStart < 0 && !isWhitespace(b)) {
+                        elementStart = i;
+                    }
+            }
+        }
+        return null;
+    }
+
+    private static int[] append(int[] bounds, int count, int start, int end) {
+        if (count + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[count] = start;
+        bounds[count + 1] = end;
+        return bounds;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    // Splits the element range in halves until a range is under minTaskBytes or a single element
+    private static class ParseTask extends RecursiveAction {
+        private final ObjectReader eventReader;
+        private final byte[] json;
+        private final int[] bounds;
+        private final ResponseInternalRatingsEvent[] events;
+        private final int from;
+        private final int to;
+        private final int minTaskBytes;
+
+        ParseTask(ObjectReader eventReader, byte[] json, int[] bounds, ResponseInternalRatingsEvent[] events, int from, int to,
+                  int minTaskBytes) {
+            this.eventReader = eventReader;
+            this.json = json;
+            this.bounds = bounds;
+            this.events = events;
+            this.from = from;
+            this.to = to;
+            this.minTaskBytes = minTaskBytes;
+        }
+
+        @Override
+        protected void compute() {
+            int bytes = bounds[2 * (to - 1) + 1] - bounds[2 * from];
+            if (to - from == 1 || bytes <= minTaskBytes) {
+                try {
+                    for (int element = from; element < to; element++) {
+                        int start = bounds[2 * element];
+                        events[element] = eventReader.readValue(json, start, bounds[2 * element + 1] - start);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseTask(eventReader, json, bounds, events, from, mid, minTaskBytes),
+                      new ParseTask(eventReader, json, bounds, events, mid, to, minTaskBytes));
+        }
+    }
+}
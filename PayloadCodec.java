@@ -0,0 +1,434 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+public final class PayloadCodec {
+
+    public enum Encoding { GZIP, ZLIB, DEFLATE, IDENTITY }
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final int UNKNOWN_SIZE_RATIO = 8; // typical JSON compression ratio when no size trailer exists
+    // The ISIZE trailer is untrusted input: it pre-sizes the output only up to this, larger payloads are
+    // inflated into pooled chunks and sized by what was actually inflated
+    private static final int MAX_PRESIZED_OUTPUT = 4 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int RETAINED_CHUNKS_PER_SLOT = 4;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int SNIFF_LENGTH = 16;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final PayloadCodec SHARED = new PayloadCodec(POOL_SIZE);
+
+    // nowrap inflaters serve both gzip members and raw deflate, zlib needs its own header handling
+    private final BlockingQueue<Inflater> rawInflaters;
+    private final BlockingQueue<Inflater> zlibInflaters;
+    // Output chunks kept between decodes, RETAINED_CHUNKS_PER_SLOT MB per pool slot at most
+    private final BlockingQueue<byte[]> chunks;
+
+    public PayloadCodec(int poolSize) {
+        rawInflaters = new ArrayBlockingQueue<>(poolSize);
+        zlibInflaters = new ArrayBlockingQueue<>(poolSize);
+        chunks = new ArrayBlockingQueue<>(poolSize * RETAINED_CHUNKS_PER_SLOT);
+    }
+
+    public static PayloadCodec shared() {
+        return SHARED;
+    }
+
+    // Picks the codec from the leading bytes, Content-Encoding only breaks the tie for headerless deflate
+    public static Encoding sniff(byte[] data, int offset, int length, String contentEncoding) {
+        if (length >= 2) {
+            int b0 = data[offset] & 0xff;
+            int b1 = data[offset + 1] & 0xff;
+            if (b0 == 0x1f && b1 == 0x8b) {
+                return Encoding.GZIP;
+            }
+            if ((b0 & 0x0f) == 8 && (b0 >> 4) <= 7 && ((b0 << 8) | b1) % 31 == 0) {
+                return Encoding.ZLIB;
+            }
+        }
+        if (contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("deflate")) {
+            return Encoding.DEFLATE;
+        }
+        return looksLikeJson(data, offset, length) ? Encoding.IDENTITY : Encoding.DEFLATE;
+    }
+
+    private static boolean looksLikeJson(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        if (length >= 3 && (data[i] & 0xff) == 0xef && (data[i + 1] & 0xff) == 0xbb && (data[i + 2] & 0xff) == 0xbf) {
+            i += 3; // UTF-8 BOM
+        }
+        while (i < end && (data[i] == ' ' || data[i] == '\t' || data[i] == '\r' || data[i] == '\n')) {
+            i++;
+        }
+        return i == end || data[i] == '[' || data[i] == '{' || data[i] == '"';
+    }
+
+    public byte[] decode(byte[] payload, String contentEncoding) throws IOException {
+        Encoding encoding = sniff(payload, 0, payload.length, contentEncoding);
+        try {
+            switch (encoding) {
+                case GZIP:
+                    return gunzip(payload);
+                case ZLIB:
+                    return inflate(zlibInflaters, false, payload, 0, payload.length);
+                case DEFLATE:
+                    return inflateOrPassThrough(payload);
+                default:
+                    return payload;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid " + encoding + " payload: " + e.getMessage());
+        }
+    }
+
+    // Decoded size without decoding: exact for identity, the ISIZE trailer for gzip (a lower bound for
+    // multi-member streams or payloads over 4 GiB), the typical compression ratio otherwise
+    public static long decodedSizeHint(byte[] payload, String contentEncoding) {
+        switch (sniff(payload, 0, payload.length, contentEncoding)) {
+            case GZIP:
+                if (payload.length >= GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE) {
+                    long isize = readIntLE(payload, payload.length - 4);
+                    // Smaller than the compressed body means the trailer wrapped, fall back to the ratio
+                    if (isize >= payload.length) {
+                        return isize;
+                    }
+                }
+                return (long) payload.length * UNKNOWN_SIZE_RATIO;
+            case IDENTITY:
+                return payload.length;
+            default:
+                return (long) payload.length * UNKNOWN_SIZE_RATIO;
+        }
+    }
+
+    // Streaming counterpart of decode: the body is inflated while the caller reads, nothing is buffered whole
+    public InputStream decodingStream(InputStream body, String contentEncoding) throws IOException {
+        InputStream in = body.markSupported() ? body : new BufferedInputStream(body, STREAM_BUFFER_SIZE);
+        byte[] head = new byte[SNIFF_LENGTH];
+        in.mark(SNIFF_LENGTH);
+        int length = in.readNBytes(head, 0, SNIFF_LENGTH);
+        in.reset();
+
+        switch (sniff(head, 0, length, contentEncoding)) {
+            case GZIP:
+                return new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+            case ZLIB:
+                return new PooledInflaterInputStream(in, zlibInflaters, false);
+            case DEFLATE:
+                // Same fallback as decode: labelled deflate but really plain JSON is handed over untouched
+                if (looksLikeJson(head, 0, length) && !startsWithDeflate(in)) {
+                    System.out.println("Payload labelled deflate is not deflate but looks like JSON, using it as-is");
+                    return in;
+                }
+                return new PooledInflaterInputStream(in, rawInflaters, true);
+            default:
+                return in;
+        }
+    }
+
+    // Trial-inflates the first buffer of the stream and rewinds it; a JSON opening byte can also be a valid
+    // deflate block header. Like decode, a format error or a body that ends mid-stream means it is not deflate.
+    private boolean startsWithDeflate(InputStream in) throws IOException {
+        byte[] window = new byte[STREAM_BUFFER_SIZE];
+        in.mark(STREAM_BUFFER_SIZE);
+        int length = in.readNBytes(window, 0, STREAM_BUFFER_SIZE);
+        in.reset();
+
+        byte[] out = new byte[STREAM_BUFFER_SIZE];
+        Inflater inflater = borrow(rawInflaters, true);
+        try {
+            inflater.setInput(window, 0, length);
+            while (!inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary()) {
+                inflater.inflate(out);
+            }
+            // Input running out is only fine when the window didn't hold the whole body
+            return inflater.finished() || (inflater.needsInput() && length == STREAM_BUFFER_SIZE);
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            release(rawInflaters, inflater);
+        }
+    }
+
+    // Heap buffers are read in place, direct buffers are drained through a duplicate so the caller's position is untouched
+    public static InputStream asStream(ByteBuffer body) {
+        if (body.hasArray()) {
+            return new ByteArrayInputStream(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        }
+        return new ByteBufferInputStream(body.duplicate());
+    }
+
+    private byte[] inflateOrPassThrough(byte[] payload) throws IOException {
+        try {
+            return inflate(rawInflaters, true, payload, 0, payload.length);
+        } catch (DataFormatException | EOFException e) {
+            // No magic bytes and not valid deflate either, hand the body over untouched
+            System.out.println("Payload is neither compressed nor JSON-looking, using it as-is: " + e.getMessage());
+            return payload;
+        }
+    }
+
+    private byte[] gunzip(byte[] payload) throws IOException, DataFormatException {
+        // ISIZE trailer gives the output size of a single-member stream (modulo 2^32); a wrong one costs
+        // a copy, never a large allocation
+        long isize = payload.length >= GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE ? readIntLE(payload, payload.length - 4) : 0;
+        Output out = new Output(isize);
+        int pos = 0;
+        Inflater inflater = borrow(rawInflaters, true);
+        try {
+            // Concatenated members are legal gzip, keep going while another header follows
+            while (pos + 1 < payload.length && (payload[pos] & 0xff) == 0x1f && (payload[pos + 1] & 0xff) == 0x8b) {
+                pos = skipGzipHeader(payload, pos);
+                inflater.reset();
+                inflater.setInput(payload, pos, payload.length - pos);
+                CRC32 crc = new CRC32();
+                long memberSize = 0;
+                while (!inflater.finished()) {
+                    byte[] buffer = out.buffer();
+                    int count = inflater.inflate(buffer, out.position(), out.remaining());
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Truncated GZIP payload");
+                    }
+                    crc.update(buffer, out.position(), count);
+                    out.advance(count);
+                    memberSize += count;
+                }
+                pos = payload.length - inflater.getRemaining();
+                if (pos + GZIP_TRAILER_SIZE > payload.length) {
+                    throw new EOFException("Missing GZIP trailer");
+                }
+                if (readIntLE(payload, pos) != crc.getValue() || readIntLE(payload, pos + 4) != (memberSize & 0xffffffffL)) {
+                    throw new ZipException("Corrupt GZIP trailer");
+                }
+                pos += GZIP_TRAILER_SIZE;
+            }
+            return out.toByteArray();
+        } finally {
+            release(rawInflaters, inflater);
+            out.release();
+        }
+    }
+
+    // No size hint worth trusting for zlib and raw deflate, the output goes straight to pooled chunks
+    private byte[] inflate(BlockingQueue<Inflater> pool, boolean nowrap, byte[] input, int offset, int length)
+            throws IOException, DataFormatException {
+        Output out = new Output(0);
+        Inflater inflater = borrow(pool, nowrap);
+        try {
+            inflater.setInput(input, offset, length);
+            while (!inflater.finished()) {
+                int count = inflater.inflate(out.buffer(), out.position(), out.remaining());
+                if (count == 0 && inflater.needsDictionary()) {
+                    throw new DataFormatException("Preset dictionaries are not supported");
+                }
+                if (count == 0 && inflater.needsInput()) {
+                    throw new EOFException("Truncated deflate payload");
+                }
+                out.advance(count);
+            }
+            return out.toByteArray();
+        } finally {
+            release(pool, inflater);
+            out.release();
+        }
+    }
+
+    private static int skipGzipHeader(byte[] data, int pos) throws IOException {
+        if (pos + GZIP_HEADER_SIZE > data.length || data[pos + 2] != 8) {
+            throw new ZipException("Unsupported GZIP header");
+        }
+        int flags = data[pos + 3] & 0xff;
+        int i = pos + GZIP_HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            if (i + 2 > data.length) {
+                throw new EOFException("Truncated GZIP header");
+            }
+            i += 2 + ((data[i] & 0xff) | (data[i + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            while (i < data.length && data[i] != 0) {
+                i++;
+            }
+            i++; // zero terminator
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (i < data.length && data[i] != 0) {
+                i++;
+            }
+            i++; // zero terminator
+        }
+        if ((flags & FHCRC) != 0) {
+            i += 2;
+        }
+        if (i >= data.length) {
+            throw new EOFException("Truncated GZIP header");
+        }
+        return i;
+    }
+
+    private static long readIntLE(byte[] data, int pos) {
+        return ((data[pos] & 0xffL)
+            | (data[pos + 1] & 0xffL) << 8
+            | (data[pos + 2] & 0xffL) << 16
+            | (data[pos + 3] & 0xffL) << 24);
+    }
+
+    private static Inflater borrow(BlockingQueue<Inflater> pool, boolean nowrap) {
+        Inflater inflater = pool.poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    private static void release(BlockingQueue<Inflater> pool, Inflater inflater) {
+        inflater.reset();
+        if (!pool.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private byte[] borrowChunk() {
+        byte[] chunk = chunks.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    // Inflated bytes go to a first buffer of the exact hinted size when the hint is small enough, then to
+    // chunks borrowed from the pool. toByteArray copies them once into an array of the inflated size, or
+    // hands over the first buffer as is when the hint was right.
+    private final class Output {
+        private final List<byte[]> filled = new ArrayList<>();
+        private final boolean firstPooled;
+        private byte[] buffer;
+        private int position;
+        private long size;
+
+        Output(long sizeHint) {
+            firstPooled = sizeHint <= 0 || sizeHint > MAX_PRESIZED_OUTPUT;
+            buffer = firstPooled ? borrowChunk() : new byte[(int) sizeHint];
+        }
+
+        // Current buffer, with room for at least one byte at position()
+        byte[] buffer() {
+            if (position == buffer.length) {
+                filled.add(buffer);
+                buffer = borrowChunk();
+                position = 0;
+            }
+            return buffer;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int remaining() {
+            return buffer.length - position;
+        }
+
+        void advance(int count) {
+            position += count;
+            size += count;
+            if (size > MAX_ARRAY_SIZE) {
+                throw new OutOfMemoryError("Decompressed payload exceeds the maximum array size");
+            }
+        }
+
+        byte[] toByteArray() {
+            if (!firstPooled && filled.isEmpty() && position == buffer.length) {
+                return buffer;
+            }
+            byte[] result = new byte[(int) size];
+            int offset = 0;
+            for (byte[] chunk : filled) {
+                System.arraycopy(chunk, 0, result, offset, chunk.length);
+                offset += chunk.length;
+            }
+            System.arraycopy(buffer, 0, result, offset, position);
+            return result;
+        }
+
+        void release() {
+            for (int i = firstPooled ? 0 : 1; i < filled.size(); i++) {
+                chunks.offer(filled.get(i));
+            }
+            if (firstPooled || !filled.isEmpty()) {
+                chunks.offer(buffer);
+            }
+            filled.clear();
+            buffer = null;
+        }
+    }
+
+    private static class PooledInflaterInputStream extends InflaterInputStream {
+        private final BlockingQueue<Inflater> pool;
+        private boolean released;
+
+        PooledInflaterInputStream(InputStream in, BlockingQueue<Inflater> pool, boolean nowrap) {
+            super(in, borrow(pool, nowrap), STREAM_BUFFER_SIZE);
+            this.pool = pool;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // InflaterInputStream only ends inflaters it created itself, so this one can go back to the pool
+                if (!released) {
+                    released = true;
+                    release(pool, inf);
+                }
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+
+public class RatingsEventAggregator {
+
+    private final List<Relationships> relationships;
+    // Null unless a dedup rule was given
+    private final RelationshipDeduplicator deduplicator;
+
+    public RatingsEventAggregator(int expectedRelationships) {
+        this(expectedRelationships, null);
+    }
+
+    // With a rule, relationships repeating a (bdrId, businessEntity) already added are dropped on the way in
+    public RatingsEventAggregator(int expectedRelationships, RelationshipDeduplicator.Rule dedupRule) {
+        if (dedupRule == null) {
+            relationships = new ArrayList<>(Math.max(expectedRelationships, 0));
+            deduplicator = null;
+        } else {
+            deduplicator = new RelationshipDeduplicator(dedupRule, expectedRelationships);
+            relationships = deduplicator.getRelationships();
+        }
+    }
+
+    // Merges all wrappers into a single event in one pass, the list is sized up front from the parsed element counts
+    public static ResponseInternalRatingsEvent merge(List<ResponseInternalRatingsEvent> wrappers) {
+        return merge(wrappers, null);
+    }
+
+    public static ResponseInternalRatingsEvent merge(List<ResponseInternalRatingsEvent> wrappers,
+                                                     RelationshipDeduplicator.Rule dedupRule) {
+        int expected = 0;
+        for (ResponseInternalRatingsEvent wrapper : wrappers) {
+            if (wrapper != null && wrapper.getRelationships() != null) {
+                expected += wrapper.getRelationships().size();
+            }
+        }
+
+        RatingsEventAggregator aggregator = new RatingsEventAggregator(expected, dedupRule);
+        for (ResponseInternalRatingsEvent wrapper : wrappers) {
+            aggregator.add(wrapper);
+        }
+        if (aggregator.getDuplicatesRemoved() > 0) {
+            System.out.println("Removed " + aggregator.getDuplicatesRemoved() + " duplicate relationships of " + expected
+                + " (" + dedupRule + ")");
+        }
+        return aggregator.toEvent();
+    }
+
+    public void add(ResponseInternalRatingsEvent wrapper) {
+        if (wrapper != null && wrapper.getRelationships() != null) {
+            if (deduplicator != null) {
+                deduplicator.addAll(wrapper.getRelationships());
+            } else {
+                relationships.addAll(wrapper.getRelationships());
+            }
+        }
+    }
+
+    public void add(Relationships relationship) {
+        if (deduplicator != null) {
+            deduplicator.add(relationship);
+        } else {
+            relationships.add(relationship);
+        }
+    }
+
+    public int size() {
+        return relationships.size();
+    }
+
+    public int getDuplicatesRemoved() {
+        return deduplicator != null ? deduplicator.getDuplicatesRemoved() : 0;
+    }
+
+    // Same shape as the old serialize-then-reparse result: only the relationships are carried over
+    public ResponseInternalRatingsEvent toEvent() {
+        ResponseInternalRatingsEvent event = new ResponseInternalRatingsEvent();
+        event.setRelationships(relationships);
+        return event;
+    }
+}
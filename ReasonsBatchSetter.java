@@ -0,0 +1,78 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+// Binds QRY_SAVE_INTERNALRATINGSEVENT_REASONS: one child row per Reasons entry, linked to its parent by
+// (bdrId, businessEntity) and keeping its position in the list. The batch is flattened once up front,
+// so store-backed batches decode every relationship a single time.
+public final class ReasonsBatchSetter implements BatchPreparedStatementSetter {
+
+    private String[] bdrIds;
+    private String[] businessEntities;
+    private int[] ordinals;
+    private String[] goldenBdrIds;
+    private String[] labels;
+    private int size;
+
+    public ReasonsBatchSetter(List<Relationships> relationships) {
+        int capacity = Math.max(16, relationships.size());
+        bdrIds = new String[capacity];
+        businessEntities = new String[capacity];
+        ordinals = new int[capacity];
+        goldenBdrIds = new String[capacity];
+        labels = new String[capacity];
+        for (int i = 0; i < relationships.size(); i++) {
+            Relationships relationship = relationships.get(i);
+            List<Reasons> reasons = relationship.getReasons();
+            if (reasons == null) {
+                continue;
+            }
+            for (int ordinal = 0; ordinal < reasons.size(); ordinal++) {
+                Reasons reason = reasons.get(ordinal);
+                add(relationship.getBdrId(), relationship.getBusinessEntity(), ordinal, reason.getGoldenBdrId(), reason.getLabel());
+            }
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setString(1, bdrIds[i]);
+        ps.setString(2, businessEntities[i]);
+        ps.setInt(3, ordinals[i]);
+        setNullable(ps, 4, goldenBdrIds[i]);
+        setNullable(ps, 5, labels[i]);
+    }
+
+    @Override
+    public int getBatchSize() {
+        return size;
+    }
+
+    private void add(String bdrId, String businessEntity, int ordinal, String goldenBdrId, String label) {
+        if (size == bdrIds.length) {
+            int capacity = size * 2;
+            bdrIds = Arrays.copyOf(bdrIds, capacity);
+            businessEntities = Arrays.copyOf(businessEntities, capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            goldenBdrIds = Arrays.copyOf(goldenBdrIds, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        bdrIds[size] = bdrId;
+        businessEntities[size] = businessEntity;
+        ordinals[size] = ordinal;
+        goldenBdrIds[size] = goldenBdrId;
+        labels[size] = label;
+        size++;
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Column-per-field buffer of Relationships rows, reused batch after batch by the thread that owns it.
+// Filling it only copies String references and binding reads them back by index, so once the arrays have
+// grown to the largest batch nothing is allocated per row.
+public final class RelationshipColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Arrays grown past the largest adaptive batch (e.g. by the parser filling a whole event) are not kept
+    // between batches; up to it, a worker binding batches at the controller's maximum reuses its arrays
+    private static final int MAX_RETAINED_CAPACITY = AdaptiveBatchController.LARGEST_BATCH_SIZE;
+
+    private static final ThreadLocal<RelationshipColumns> WITHOUT_REASON =
+        ThreadLocal.withInitial(() -> new RelationshipColumns(false));
+    private static final ThreadLocal<RelationshipColumns> WITH_FIRST_REASON =
+        ThreadLocal.withInitial(() -> new RelationshipColumns(true));
+
+    private final boolean firstReason;
+    private String[] bdrIds;
+    private String[] businessEntities;
+    private String[] natures;
+    private String[] statuses;
+    private String[] goldenBdrIds;
+    private String[] labels;
+    private int size;
+
+    // firstReason: also keep goldenBdrId/label of the first reason, otherwise those columns stay NULL
+    public RelationshipColumns(boolean firstReason) {
+        this.firstReason = firstReason;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // Cleared buffer of the calling thread
+    public static RelationshipColumns forCurrentThread(boolean firstReason) {
+        RelationshipColumns columns = (firstReason ? WITH_FIRST_REASON : WITHOUT_REASON).get();
+        columns.clear();
+        return columns;
+    }
+
+    public boolean capturesFirstReason() {
+        return firstReason;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Drops the references so the previous batch can be collected; the arrays are kept
+    public void clear() {
+        Arrays.fill(bdrIds, 0, size, null);
+        Arrays.fill(businessEntities, 0, size, null);
+        Arrays.fill(natures, 0, size, null);
+        Arrays.fill(statuses, 0, size, null);
+        Arrays.fill(goldenBdrIds, 0, size, null);
+        Arrays.fill(labels, 0, size, null);
+        size = 0;
+    }
+
+    // Empties the buffer once the thread is done with the batch. Threads of the IngestExecutor live as long
+    // as the application, so arrays grown past MAX_RETAINED_CAPACITY are given back instead of kept.
+    public void release() {
+        if (bdrIds.length > MAX_RETAINED_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+            size = 0;
+        } else {
+            clear();
+        }
+    }
+
+    int capacity() {
+        return bdrIds.length;
+    }
+
+    public void addAll(List<Relationships> relationships) {
+        ensureCapacity(size + relationships.size());
+        for (int i = 0; i < relationships.size(); i++) {
+            add(relationships.get(i));
+        }
+    }
+
+    public void add(Relationships relationship) {
+        String goldenBdrId = null;
+        String label = null;
+        if (firstReason) {
+            List<Reasons> reasons = relationship.getReasons();
+            if (reasons != null && !reasons.isEmpty()) {
+                goldenBdrId = reasons.get(0).getGoldenBdrId();
+                label = reasons.get(0).getLabel();
+            }
+        }
+        add(relationship.getBdrId(), relationship.getBusinessEntity(), relationship.getNature(), relationship.getStatus(),
+            goldenBdrId, label);
+    }
+
+    // Used by the parser to fill the row straight from the token stream
+    public void add(String bdrId, String businessEntity, String nature, String status, String goldenBdrId, String label) {
+        if (size == bdrIds.length) {
+            // Doubling stops at the retained size once, so a batch of that size keeps its arrays
+            ensureCapacity(size < MAX_RETAINED_CAPACITY ? Math.min(size * 2, MAX_RETAINED_CAPACITY) : size * 2);
+        }
+        bdrIds[size] = bdrId;
+        businessEntities[size] = businessEntity;
+        natures[size] = nature;
+        statuses[size] = status;
+        goldenBdrIds[size] = firstReason ? goldenBdrId : null;
+        labels[size] = firstReason ? label : null;
+        size++;
+    }
+
+    public String bdrId(int row) {
+        return bdrIds[row];
+    }
+
+    public String businessEntity(int row) {
+        return businessEntities[row];
+    }
+
+    public String nature(int row) {
+        return natures[row];
+    }
+
+    public String status(int row) {
+        return statuses[row];
+    }
+
+    public String goldenBdrId(int row) {
+        return goldenBdrIds[row];
+    }
+
+    public String label(int row) {
+        return labels[row];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bdrIds.length) {
+            bdrIds = Arrays.copyOf(bdrIds, capacity);
+            businessEntities = Arrays.copyOf(businessEntities, capacity);
+            natures = Arrays.copyOf(natures, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            goldenBdrIds = Arrays.copyOf(goldenBdrIds, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+    }
+
+    private void allocate(int capacity) {
+        bdrIds = new String[capacity];
+        businessEntities = new String[capacity];
+        natures = new String[capacity];
+        statuses = new String[capacity];
+        goldenBdrIds = new String[capacity];
+        labels = new String[capacity];
+    }
+}
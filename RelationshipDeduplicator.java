@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+// Drops relationships whose (bdrId, businessEntity) was already seen, as they come out of the parser.
+// Open addressing over primitive arrays: one long per key hash and one int pointing at the kept row, so
+// millions of keys cost 12 bytes a slot and no boxing. Hash matches are confirmed on the key strings of
+// the kept row, a 64-bit collision can't merge two different keys.
+public final class RelationshipDeduplicator {
+
+    public enum Rule {
+        // The first occurrence of a key is kept, later ones are dropped
+        KEEP_FIRST,
+        // The last occurrence's values replace the kept row, which stays at the position of the first
+        KEEP_LAST;
+
+        // Property value (keep-first, keep-last, any case); blank means no deduplication and returns null
+        public static Rule parse(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            String name = value.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+            for (Rule rule : values()) {
+                if (rule.name().equals(name)) {
+                    return rule;
+                }
+            }
+            throw new IllegalArgumentException("Unknown dedup rule: " + value + ", expected keep-first or keep-last");
+        }
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final Rule rule;
+    private final List<Relationships> relationships;
+    private long[] keyHashes;
+    // Index of the kept row in relationships plus one, 0 marks an empty slot
+    private int[] rows;
+    private int mask;
+    private int duplicatesRemoved;
+
+    public RelationshipDeduplicator(Rule rule, int expectedRelationships) {
+        this.rule = rule;
+        relationships = new ArrayList<>(Math.max(expectedRelationships, 0));
+        allocate(expectedRelationships);
+    }
+
+    // Returns false when the key was already there; with KEEP_LAST the kept row is then replaced
+    public boolean add(Relationships relationship) {
+        long keyHash = Fingerprints.key(relationship);
+        int slot = (int) keyHash & mask;
+        while (rows[slot] != 0) {
+            int row = rows[slot] - 1;
+            if (keyHashes[slot] == keyHash && sameKey(relationships.get(row), relationship)) {
+                duplicatesRemoved++;
+                if (rule == Rule.KEEP_LAST) {
+                    relationships.set(row, relationship);
+                }
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        relationships.add(relationship);
+        keyHashes[slot] = keyHash;
+        rows[slot] = relationships.size();
+        if (relationships.size() > keyHashes.length * LOAD_FACTOR) {
+            rehash();
+        }
+        return true;
+    }
+
+    public void addAll(List<Relationships> batch) {
+        for (Relationships relationship : batch) {
+            add(relationship);
+        }
+    }
+
+    // Unique relationships in first-seen order
+    public List<Relationships> getRelationships() {
+        return relationships;
+    }
+
+    public int size() {
+        return relationships.size();
+    }
+
+    public int getDuplicatesRemoved() {
+        return duplicatesRemoved;
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    private void allocate(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keyHashes = new long[capacity];
+        rows = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // Only reached when more unique keys arrive than expected
+    private void rehash() {
+        long[] oldKeyHashes = keyHashes;
+        int[] oldRows = rows;
+        allocate(oldKeyHashes.length);
+        for (int i = 0; i < oldKeyHashes.length; i++) {
+            if (oldRows[i] != 0) {
+                int slot = (int) oldKeyHashes[i] & mask;
+                while (rows[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keyHashes[slot] = oldKeyHashes[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    private static boolean sameKey(Relationships kept, Relationships relationship) {
+        return Objects.equals(kept.getBdrId(), relationship.getBdrId())
+            && Objects.equals(kept.getBusinessEntity(), relationship.getBusinessEntity());
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Append-then-read holder of a snapshot's relationships. Implementations decide how rows are kept
+// (compact heap encoding, memory-mapped segments); callers only see indexed access.
+public interface RelationshipStore extends Closeable {
+
+    // Snapshots whose decoded JSON fits the heap budget stay on the heap, larger ones are spilled to
+    // memory-mapped segments under spillDirectory. decodedBytes < 0 (unknown) is treated as over budget.
+    static RelationshipStore forSnapshot(long decodedBytes, long heapBudgetBytes, Path spillDirectory) throws IOException {
+        if (decodedBytes >= 0 && decodedBytes <= heapBudgetBytes) {
+            return new CompactRelationshipStore();
+        }
+        System.out.println("Snapshot of " + (decodedBytes < 0 ? "unknown size" : decodedBytes / (1024 * 1024) + " MiB")
+            + " exceeds the heap budget of " + heapBudgetBytes / (1024 * 1024) + " MiB, spilling to " + spillDirectory);
+        return new MappedSpillRelationshipStore(spillDirectory);
+    }
+
+    void add(Relationships relationship);
+
+    int size();
+
+    // Decodes row index into a new object
+    Relationships get(int index);
+
+    // Appends rows [from, to) to the columns without creating Relationships objects
+    void copyTo(int from, int to, RelationshipColumns columns);
+
+    // Rough heap footprint, for logging and budgeting
+    long estimatedHeapBytes();
+
+    // Read-only List view so existing List<Relationships> code paths (batching, InsertStrategy) work unchanged
+    default Rows asList() {
+        return new Rows(this, 0, size());
+    }
+
+    @Override
+    default void close() {
+    }
+
+    final class Rows extends AbstractList<Relationships> implements RandomAccess {
+        private final RelationshipStore store;
+        private final int from;
+        private final int to;
+
+        Rows(RelationshipStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Relationships get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + (to - from));
+            }
+            return store.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<Relationships> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("Range " + fromIndex + ".." + toIndex + ", size " + size());
+            }
+            return new Rows(store, from + fromIndex, from + toIndex);
+        }
+
+        // Fast path for columnar binding: the rows go to the columns without intermediate objects
+        public void copyTo(RelationshipColumns columns) {
+            store.copyTo(from, to, columns);
+        }
+    }
+}
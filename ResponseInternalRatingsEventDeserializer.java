@@ -0,0 +1,187 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads an event straight from the token stream into typed Relationships/Reasons, no JsonNode tree is built
+public class ResponseInternalRatingsEventDeserializer extends StdDeserializer<ResponseInternalRatingsEvent> {
+
+    public ResponseInternalRatingsEventDeserializer() {
+        super(ResponseInternalRatingsEvent.class);
+    }
+
+    @Override
+    public ResponseInternalRatingsEvent deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        ResponseInternalRatingsEvent event = new ResponseInternalRatingsEvent();
+        List<Relationships> relationships = null;
+        List<Reasons> reasons = null;
+
+        JsonToken token = jp.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            if ("relationships".equals(fieldName)) {
+                relationships = readRelationshipsList(jp);
+            } else if ("reasons".equals(fieldName)) {
+                reasons = readReasonsList(jp);
+            } else {
+                jp.skipChildren();
+            }
+        }
+
+        event.setRelationships(relationships != null ? relationships : new ArrayList<>());
+        event.setReasons(reasons != null ? reasons : new ArrayList<>());
+        return event;
+    }
+
+    // Expects the parser on START_ARRAY, START_OBJECT (single value) or VALUE_NULL
+    static List<Relationships> readRelationshipsList(JsonParser jp) throws IOException {
+        List<Relationships> relationships = new ArrayList<>();
+        if (jp.currentToken() == JsonToken.START_OBJECT) {
+            relationships.add(readRelationship(jp));
+        } else if (jp.currentToken() == JsonToken.START_ARRAY) {
+            for (JsonToken token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+                if (token == JsonToken.START_OBJECT) {
+                    relationships.add(readRelationship(jp));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        } else {
+            jp.skipChildren();
+        }
+        return relationships;
+    }
+
+    static Relationships readRelationship(JsonParser jp) throws IOException {
+        Relationships relationship = new Relationships();
+        for (JsonToken token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            switch (fieldName) {
+                case "bdrId":
+                    relationship.setBdrId(readText(jp));
+                    break;
+                case "businessEntity":
+                    relationship.setBusinessEntity(readText(jp));
+                    break;
+                case "nature":
+                    relationship.setNature(readText(jp));
+                    break;
+                case "status":
+                    relationship.setStatus(readText(jp));
+                    break;
+                case "reasons":
+                    // An explicit null stays null, as databind binds it
+                    relationship.setReasons(jp.currentToken() == JsonToken.VALUE_NULL ? null : readReasonsList(jp));
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        return relationship;
+    }
+
+    // Same fields as readRelationship, appended to the columns instead of bound to an object.
+    // Only the first reason is kept, and only if the columns capture it.
+    static void readRelationshipInto(JsonParser jp, RelationshipColumns columns) throws IOException {
+        String bdrId = null;
+        String businessEntity = null;
+        String nature = null;
+        String status = null;
+        String goldenBdrId = null;
+        String label = null;
+        for (JsonToken token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            switch (fieldName) {
+                case "bdrId":
+                    bdrId = readText(jp);
+                    break;
+                case "businessEntity":
+                    businessEntity = readText(jp);
+                    break;
+                case "nature":
+                    nature = readText(jp);
+                    break;
+                case "status":
+                    status = readText(jp);
+                    break;
+                case "reasons":
+                    if (columns.capturesFirstReason() && jp.currentToken() == JsonToken.START_ARRAY) {
+                        boolean first = true;
+                        for (JsonToken reasonToken = jp.nextToken(); reasonToken != JsonToken.END_ARRAY; reasonToken = jp.nextToken()) {
+                            if (first && reasonToken == JsonToken.START_OBJECT) {
+                                Reasons reason = readReason(jp);
+                                goldenBdrId = reason.getGoldenBdrId();
+                                label = reason.getLabel();
+                                first = false;
+                            } else {
+                                jp.skipChildren();
+                            }
+                        }
+                    } else if (columns.capturesFirstReason() && jp.currentToken() == JsonToken.START_OBJECT) {
+                        Reasons reason = readReason(jp);
+                        goldenBdrId = reason.getGoldenBdrId();
+                        label = reason.getLabel();
+                    } else {
+                        jp.skipChildren();
+                    }
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        columns.add(bdrId, businessEntity, nature, status, goldenBdrId, label);
+    }
+
+    static List<Reasons> readReasonsList(JsonParser jp) throws IOException {
+        List<Reasons> reasons = new ArrayList<>();
+        if (jp.currentToken() == JsonToken.START_OBJECT) {
+            reasons.add(readReason(jp));
+        } else if (jp.currentToken() == JsonToken.START_ARRAY) {
+            for (JsonToken token = jp.nextToken(); token != JsonToken.END_ARRAY; token = jp.nextToken()) {
+                if (token == JsonToken.START_OBJECT) {
+                    reasons.add(readReason(jp));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        } else {
+            jp.skipChildren();
+        }
+        return reasons;
+    }
+
+    static Reasons readReason(JsonParser jp) throws IOException {
+        Reasons reason = new Reasons();
+        for (JsonToken token = jp.nextToken(); token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String fieldName = jp.getCurrentName();
+            jp.nextToken();
+            if ("goldenBdrId".equals(fieldName)) {
+                reason.setGoldenBdrId(readText(jp));
+            } else if ("label".equals(fieldName)) {
+                reason.setLabel(readText(jp));
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return reason;
+    }
+
+    // Scalars (numbers included) come back as text, nested structures are skipped
+    private static String readText(JsonParser jp) throws IOException {
+        if (jp.currentToken().isScalarValue()) {
+            return jp.currentToken() == JsonToken.VALUE_NULL ? null : jp.getValueAsString();
+        }
+        jp.skipChildren();
+        return null;
+    }
+}
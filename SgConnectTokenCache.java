@@ -0,0 +1,142 @@
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Keeps the SG Connect token warm: callers get the cached token, a background thread renews it before it expires
+public class SgConnectTokenCache implements Closeable {
+
+    private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000; // used when the token carries no readable expiry
+    private static final long REFRESH_MARGIN_MILLIS = 60 * 1000;
+    private static final long RETRY_DELAY_MILLIS = 5 * 1000;
+    private static final long EXPIRY_SKEW_MILLIS = 10 * 1000; // don't hand out a token that expires in flight
+
+    private final Callable<String> tokenSource;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<CompletableFuture<CachedToken>> inFlight = new AtomicReference<>();
+    private volatile CachedToken current;
+
+    public SgConnectTokenCache(Callable<String> tokenSource) {
+        this.tokenSource = tokenSource;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sgconnect-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Only blocks when there is no usable token yet (cold start, or the background refresh kept failing)
+    public String getToken() throws IOException {
+        CachedToken token = current;
+        if (token != null && !token.isExpired()) {
+            return token.value;
+        }
+        try {
+            return refresh().get().value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for SG Connect token", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to obtain SG Connect token", e.getCause());
+        }
+    }
+
+    // Starts fetching the first token without waiting for it, e.g. at application startup
+    public void prefetch() {
+        refresh();
+    }
+
+    // All concurrent callers share one in-flight refresh
+    private CompletableFuture<CachedToken> refresh() {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<CachedToken> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                scheduler.execute(() -> fetch(created));
+                return created;
+            }
+        }
+    }
+
+    private void fetch(CompletableFuture<CachedToken> pending) {
+        try {
+            String value = tokenSource.call();
+            CachedToken token = new CachedToken(value, readExpiry(value));
+            if (token.isExpired()) {
+                throw new IOException("SG Connect returned a token that is already expired or expires within "
+                    + EXPIRY_SKEW_MILLIS + " ms");
+            }
+            current = token;
+            inFlight.compareAndSet(pending, null);
+            pending.complete(token);
+
+            // Short-lived tokens are renewed at half their lifetime, but never sooner than the retry delay,
+            // so a source handing out tokens that are barely valid can't make the refresh spin
+            long lifetime = Math.max(0, token.usableUntilMillis() - System.currentTimeMillis());
+            long delay = lifetime > 2 * REFRESH_MARGIN_MILLIS ? lifetime - REFRESH_MARGIN_MILLIS : lifetime / 2;
+            scheduler.schedule(this::refresh, Math.max(delay, RETRY_DELAY_MILLIS), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("Error refreshing SG Connect token: " + e.getMessage());
+            inFlight.compareAndSet(pending, null);
+            pending.completeExceptionally(e);
+
+            // Keep trying in the background while the old token is still good
+            CachedToken token = current;
+            if (token != null && !token.isExpired()) {
+                scheduler.schedule(this::refresh, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // SG Connect access tokens are JWTs, the "exp" claim tells when to renew. Opaque tokens get the default TTL.
+    static long readExpiry(String token) {
+        long fallback = System.currentTimeMillis() + DEFAULT_TTL_MILLIS;
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return fallback;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            JsonNode claims = MaestroCodec.shared().readerFor(JsonNode.class).readTree(new String(payload, StandardCharsets.UTF_8));
+            JsonNode exp = claims.get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : fallback;
+        } catch (IllegalArgumentException | IOException e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class CachedToken {
+        private final String value;
+        private final long expiresAtMillis;
+
+        CachedToken(String value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        long usableUntilMillis() {
+            return expiresAtMillis - EXPIRY_SKEW_MILLIS;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= usableUntilMillis();
+        }
+    }
+}
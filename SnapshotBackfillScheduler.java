@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Fetches, parses and loads a range of snapshotDates in parallel.
+// Maestro calls are paced by a request-rate limit, DB loads by a connection budget, and every finished
+// date is appended to a checkpoint file so a restarted backfill skips it. Every date is loaded through
+// DbeClientDao.replaceInternalRatingEventsApi, which swaps that date's rows in one transaction: a load
+// interrupted by a crash left nothing behind, and the next run simply loads the date again.
+public class SnapshotBackfillScheduler {
+
+    // Written by earlier versions when a load began; replaced loads made them redundant
+    private static final String STARTED_SUFFIX = " started";
+
+    public interface SnapshotFetcher {
+        CompletableFuture<ResponseInternalRatingsEvent> fetch(LocalDate snapshotDate);
+    }
+
+    private final SnapshotFetcher fetcher;
+    private final DbeClientDao dbeClientDao;
+    private final Path checkpointFile;
+    private final SnapshotChangeTracker changeTracker;
+    private final RateLimiter rateLimiter;
+    // One connection per load, the dated replace runs in a single transaction
+    private final Semaphore dbConnections;
+    private final Semaphore datesInFlight;
+
+    // changeTracker may be null; when set, loads are confirmed to it and unchanged snapshots are not loaded
+    public SnapshotBackfillScheduler(SnapshotFetcher fetcher, DbeClientDao dbeClientDao, Path checkpointFile,
+                                     SnapshotChangeTracker changeTracker, double requestsPerSecond,
+                                     int dbConnectionBudget, int maxDatesInFlight) {
+        this.fetcher = fetcher;
+        this.dbeClientDao = dbeClientDao;
+        this.checkpointFile = checkpointFile;
+        this.changeTracker = changeTracker;
+        this.rateLimiter = new RateLimiter(requestsPerSecond);
+        this.dbConnections = new Semaphore(Math.max(1, dbConnectionBudget), true);
+        // Caps how many parsed snapshots can sit in memory waiting for a DB connection
+        this.datesInFlight = new Semaphore(maxDatesInFlight, true);
+    }
+
+    // Runs every date in [from, to] that is not yet in the checkpoint file, returns the stats of this run
+    public Map<LocalDate, DateStats> run(LocalDate from, LocalDate to) throws IOException, InterruptedException {
+        Set<LocalDate> completed = readCheckpoint();
+        List<LocalDate> pending = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (!completed.contains(date)) {
+                pending.add(date);
+            }
+        }
+        System.out.println("Backfill " + from + " to " + to + ": " + pending.size() + " dates to load, "
+            + completed.size() + " already done");
+
+        Map<LocalDate, DateStats> stats = Collections.synchronizedMap(new TreeMap<>());
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (LocalDate date : pending) {
+                datesInFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        stats.put(date, backfill(date));
+                    } finally {
+                        datesInFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        long failed = stats.values().stream().filter(s -> !s.succeeded).count();
+        System.out.println("Backfill finished in " + (System.currentTimeMillis() - startTime) / 1000 + " s, "
+            + (stats.size() - failed) + " dates loaded, " + failed + " failed");
+        return stats;
+    }
+
+    private DateStats backfill(LocalDate date) {
+        long startTime = System.currentTimeMillis();
+        try {
+            rateLimiter.acquire();
+            ResponseInternalRatingsEvent event = fetcher.fetch(date).join();
+            long fetchMillis = System.currentTimeMillis() - startTime;
+            if (event == null || event.getRelationships() == null) {
+                System.err.println("Backfill " + date + ": no data returned, will be retried on the next run");
+                return DateStats.failed(date);
+            }
+            if (SnapshotChangeTracker.isUnchanged(event)) {
+                markCompleted(date);
+                return new DateStats(date, true, 0, fetchMillis, 0);
+            }
+
+            long loadStart = System.currentTimeMillis();
+            dbConnections.acquire();
+            try {
+                dbeClientDao.replaceInternalRatingEventsApi(date.toString(), event);
+            } finally {
+                dbConnections.release();
+            }
+            long loadMillis = System.currentTimeMillis() - loadStart;
+            if (changeTracker != null) {
+                changeTracker.markIngested(date.toString(), loadMillis);
+            }
+
+            markCompleted(date);
+            DateStats stats = new DateStats(date, true, event.getRelationships().size(), fetchMillis, loadMillis);
+            System.out.println("Backfill " + date + ": " + stats);
+            return stats;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("Backfill " + date + " failed: " + e.getMessage());
+            e.printStackTrace();
+            return DateStats.failed(date);
+        }
+    }
+
+    // "<date>" lines are finished loads
+    private Set<LocalDate> readCheckpoint() throws IOException {
+        Set<LocalDate> completed = new HashSet<>();
+        if (Files.exists(checkpointFile)) {
+            for (String line : Files.readAllLines(checkpointFile, StandardCharsets.UTF_8)) {
+                String entry = line.trim();
+                if (!entry.isEmpty() && !entry.endsWith(STARTED_SUFFIX)) {
+                    completed.add(LocalDate.parse(entry));
+                }
+            }
+        }
+        return completed;
+    }
+
+    // A date is only written once its load returned, and the write is synced so a crash can't lose it
+    private void markCompleted(LocalDate date) throws IOException {
+        appendCheckpoint(date.toString());
+    }
+
+    private synchronized void appendCheckpoint(String entry) throws IOException {
+        Files.write(checkpointFile, (entry + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    public static class DateStats {
+        private final LocalDate snapshotDate;
+        private final boolean succeeded;
+        private final int records;
+        private final long fetchMillis;
+        private final long loadMillis;
+
+        DateStats(LocalDate snapshotDate, boolean succeeded, int records, long fetchMillis, long loadMillis) {
+            this.snapshotDate = snapshotDate;
+            this.succeeded = succeeded;
+            this.records = records;
+            this.fetchMillis = fetchMillis;
+            this.loadMillis = loadMillis;
+        }
+
+        static DateStats failed(LocalDate snapshotDate) {
+            return new DateStats(snapshotDate, false, 0, 0, 0);
+        }
+
+        public LocalDate getSnapshotDate() {
+            return snapshotDate;
+        }
+
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+
+        public int getRecords() {
+            return records;
+        }
+
+        public double getRecordsPerSecond() {
+            return records / (Math.max(1, fetchMillis + loadMillis) / 1000.0);
+        }
+
+        @Override
+        public String toString() {
+            return records + " records, fetch " + fetchMillis + " ms, load " + loadMillis + " ms, "
+                + String.format("%.2f", getRecordsPerSecond()) + " records/second";
+        }
+    }
+
+    // Spaces request starts evenly; callers are virtual threads, so sleeping here costs no platform thread
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long nextSlotNanos = System.nanoTime();
+
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        }
+
+        void acquire() throws InterruptedException {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(nextSlotNanos, now);
+                nextSlotNanos = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
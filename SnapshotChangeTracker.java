@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers what was last ingested per snapshotDate so an unchanged snapshot is neither decompressed,
+// parsed nor loaded again. Validators (ETag / Last-Modified) let the server answer 304; the hash of the
+// compressed payload catches servers that don't support conditional requests.
+public class SnapshotChangeTracker {
+
+    // Returned instead of a parsed snapshot when nothing changed. It is not data: every DAO load checks
+    // isUnchanged and returns without touching the tables, and it can't be filled in by mistake.
+    public static final ResponseInternalRatingsEvent UNCHANGED = new UnchangedSnapshot();
+
+    public static boolean isUnchanged(ResponseInternalRatingsEvent event) {
+        return event instanceof UnchangedSnapshot;
+    }
+
+    private final Path stateFile;
+    private final Map<String, SnapshotState> ingested = new ConcurrentHashMap<>();
+    private final Map<String, SnapshotState> pending = new ConcurrentHashMap<>();
+    private final AtomicLong unchangedSnapshots = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    public SnapshotChangeTracker(Path stateFile) {
+        this.stateFile = stateFile;
+        load();
+    }
+
+    public Map<String, String> conditionalHeaders(String snapshotDate) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        SnapshotState state = ingested.get(snapshotDate);
+        if (state != null) {
+            if (state.etag != null) {
+                headers.put("If-None-Match", state.etag);
+            }
+            if (state.lastModified != null) {
+                headers.put("If-Modified-Since", state.lastModified);
+            }
+        }
+        return headers;
+    }
+
+    // Server answered 304 to the conditional request
+    public void notModified(String snapshotDate) {
+        recordSkip(snapshotDate, "server returned 304 Not Modified");
+    }
+
+    // True when the compressed payload is byte-identical to the last ingested one. Otherwise the new
+    // validators and hash are staged and only become current once markIngested confirms the load.
+    public boolean isUnchanged(String snapshotDate, byte[] compressedPayload, String etag, String lastModified) {
+        String hash = sha256(compressedPayload);
+        SnapshotState state = ingested.get(snapshotDate);
+        if (state != null && hash.equals(state.payloadHash)) {
+            recordSkip(snapshotDate, "payload hash unchanged");
+            return true;
+        }
+        pending.put(snapshotDate, new SnapshotState(etag, lastModified, hash, 0));
+        return false;
+    }
+
+    // Time spent on decompression/parsing/loading for the staged payload, reported as saved when it is skipped later
+    public void addProcessingTime(String snapshotDate, long millis) {
+        pending.computeIfPresent(snapshotDate, (date, state) -> state.plusMillis(millis));
+    }
+
+    public synchronized void markIngested(String snapshotDate, long loadMillis) {
+        SnapshotState state = pending.remove(snapshotDate);
+        if (state == null) {
+            return;
+        }
+        ingested.put(snapshotDate, state.plusMillis(loadMillis));
+        save();
+    }
+
+    public long getUnchangedSnapshots() {
+        return unchangedSnapshots.get();
+    }
+
+    public long getSavedMillis() {
+        return savedMillis.get();
+    }
+
+    private void recordSkip(String snapshotDate, String reason) {
+        SnapshotState state = ingested.get(snapshotDate);
+        long saved = state != null ? state.processingMillis : 0;
+        long skips = unchangedSnapshots.incrementAndGet();
+        long totalSaved = savedMillis.addAndGet(saved);
+        System.out.println("Snapshot " + snapshotDate + " unchanged (" + reason + "), skipped decompress/parse/load. Saved ~"
+            + saved + " ms, " + totalSaved + " ms over " + skips + " unchanged snapshots");
+    }
+
+    private void load() {
+        if (stateFile == null || !Files.exists(stateFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot state, every snapshot will be ingested again: " + e.getMessage());
+            return;
+        }
+        Map<String, Map<String, String>> byDate = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            byDate.computeIfAbsent(key.substring(0, dot), date -> new HashMap<>()).put(key.substring(dot + 1), properties.getProperty(key));
+        }
+        byDate.forEach((date, values) -> ingested.put(date, new SnapshotState(values.get("etag"), values.get("lastModified"),
+            values.get("hash"), Long.parseLong(values.getOrDefault("millis", "0")))));
+    }
+
+    private void save() {
+        if (stateFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        ingested.forEach((date, state) -> {
+            if (state.etag != null) {
+                properties.setProperty(date + ".etag", state.etag);
+            }
+            if (state.lastModified != null) {
+                properties.setProperty(date + ".lastModified", state.lastModified);
+            }
+            properties.setProperty(date + ".hash", state.payloadHash);
+            properties.setProperty(date + ".millis", Long.toString(state.processingMillis));
+        });
+        try {
+            Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, "Last ingested Maestro snapshots");
+            }
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error saving snapshot state: " + e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class UnchangedSnapshot extends ResponseInternalRatingsEvent {
+
+        @Override
+        public List<Relationships> getRelationships() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Reasons> getReasons() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void setRelationships(List<Relationships> relationships) {
+            throw new UnsupportedOperationException("SnapshotChangeTracker.UNCHANGED is a marker, not a snapshot");
+        }
+
+        @Override
+        public void setReasons(List<Reasons> reasons) {
+            throw new UnsupportedOperationException("SnapshotChangeTracker.UNCHANGED is a marker, not a snapshot");
+        }
+    }
+
+    private static class SnapshotState {
+        private final String etag;
+        private final String lastModified;
+        private final String payloadHash;
+        private final long processingMillis;
+
+        SnapshotState(String etag, String lastModified, String payloadHash, long processingMillis) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.payloadHash = payloadHash;
+            this.processingMillis = processingMillis;
+        }
+
+        SnapshotState plusMillis(long millis) {
+            return new SnapshotState(etag, lastModified, payloadHash, processingMillis + millis);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Fingerprint of every row of the last loaded snapshot, keyed by (bdrId, businessEntity).
+// Open addressing over primitive arrays: one long per key hash and per content fingerprint, plus the
+// key strings themselves, which are needed to address deletes and to make key lookups exact.
+// Content changes are detected by a 64-bit fingerprint, so a missed update has a 2^-64 chance per row.
+public final class SnapshotFingerprintIndex {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final long[] keyHashes;
+    private final long[] fingerprints;
+    private final String[] bdrIds;
+    private final String[] businessEntities;
+    private final int mask;
+    private int size;
+
+    private SnapshotFingerprintIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keyHashes = new long[capacity];
+        fingerprints = new long[capacity];
+        bdrIds = new String[capacity];
+        businessEntities = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    public static SnapshotFingerprintIndex of(List<Relationships> snapshot) {
+        SnapshotFingerprintIndex index = new SnapshotFingerprintIndex(snapshot.size());
+        for (Relationships relationship : snapshot) {
+            index.put(relationship, Fingerprints.key(relationship), Fingerprints.content(relationship));
+        }
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Classifies every row of the new snapshot against this index in a single pass. The index itself
+    // is left untouched; Delta.getNextIndex() describes the new snapshot once the delta is applied.
+    public Delta diff(List<Relationships> snapshot) {
+        SnapshotFingerprintIndex next = new SnapshotFingerprintIndex(snapshot.size());
+        boolean[] seen = new boolean[keyHashes.length];
+        // Per slot of next: position of the key's pending change, inserts index + 1, -(updates index + 1), or 0
+        int[] pending = new int[next.keyHashes.length];
+        List<Relationships> inserts = new ArrayList<>();
+        List<Relationships> updates = new ArrayList<>();
+        boolean revertedUpdates = false;
+
+        for (Relationships relationship : snapshot) {
+            long keyHash = Fingerprints.key(relationship);
+            long fingerprint = Fingerprints.content(relationship);
+
+            // A key repeated inside the snapshot: the last occurrence wins, so it replaces the pending
+            // change of the earlier one. The DAO applies updates before inserts, an update of a key that is
+            // still to be inserted would match no row.
+            int nextSlot = next.slotOf(keyHash, relationship.getBdrId(), relationship.getBusinessEntity());
+            if (next.isOccupied(nextSlot)) {
+                next.fingerprints[nextSlot] = fingerprint;
+                int change = pending[nextSlot];
+                if (change > 0) {
+                    inserts.set(change - 1, relationship);
+                    continue;
+                }
+                boolean differs = fingerprints[slotOf(keyHash, relationship.getBdrId(), relationship.getBusinessEntity())] != fingerprint;
+                if (change < 0) {
+                    // Back to what the table holds: the earlier update is dropped
+                    updates.set(-change - 1, differs ? relationship : null);
+                    revertedUpdates |= !differs;
+                } else if (differs) {
+                    updates.add(relationship);
+                    pending[nextSlot] = -updates.size();
+                }
+                continue;
+            }
+            next.put(relationship, keyHash, fingerprint);
+
+            int slot = slotOf(keyHash, relationship.getBdrId(), relationship.getBusinessEntity());
+            if (!isOccupied(slot)) {
+                inserts.add(relationship);
+                pending[nextSlot] = inserts.size();
+            } else {
+                seen[slot] = true;
+                if (fingerprints[slot] != fingerprint) {
+                    updates.add(relationship);
+                    pending[nextSlot] = -updates.size();
+                }
+            }
+        }
+        if (revertedUpdates) {
+            updates.removeIf(Objects::isNull);
+        }
+
+        List<String[]> deletes = new ArrayList<>();
+        for (int slot = 0; slot < keyHashes.length; slot++) {
+            if (isOccupied(slot) && !seen[slot]) {
+                deletes.add(new String[] {bdrIds[slot], businessEntities[slot]});
+            }
+        }
+        return new Delta(inserts, updates, deletes, next, snapshot.size());
+    }
+
+    private void put(Relationships relationship, long keyHash, long fingerprint) {
+        int slot = slotOf(keyHash, relationship.getBdrId(), relationship.getBusinessEntity());
+        if (!isOccupied(slot)) {
+            size++;
+            keyHashes[slot] = keyHash;
+            // Null key parts are stored as "" so an occupied slot always has a non-null bdrId
+            bdrIds[slot] = relationship.getBdrId() != null ? relationship.getBdrId() : "";
+            businessEntities[slot] = relationship.getBusinessEntity();
+        }
+        fingerprints[slot] = fingerprint;
+    }
+
+    // Slot holding the key, or the empty slot where it would go
+    private int slotOf(long keyHash, String bdrId, String businessEntity) {
+        String storedBdrId = bdrId != null ? bdrId : "";
+        int slot = (int) keyHash & mask;
+        while (isOccupied(slot)) {
+            if (keyHashes[slot] == keyHash && bdrIds[slot].equals(storedBdrId)
+                && Objects.equals(businessEntities[slot], businessEntity)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean isOccupied(int slot) {
+        return bdrIds[slot] != null;
+    }
+
+    public static class Delta {
+        private final List<Relationships> inserts;
+        private final List<Relationships> updates;
+        // {bdrId, businessEntity} of every row that is no longer in the snapshot
+        private final List<String[]> deletes;
+        private final SnapshotFingerprintIndex nextIndex;
+        private final int snapshotSize;
+
+        Delta(List<Relationships> inserts, List<Relationships> updates, List<String[]> deletes,
+              SnapshotFingerprintIndex nextIndex, int snapshotSize) {
+            this.inserts = inserts;
+            this.updates = updates;
+            this.deletes = deletes;
+            this.nextIndex = nextIndex;
+            this.snapshotSize = snapshotSize;
+        }
+
+        public List<Relationships> getInserts() {
+            return inserts;
+        }
+
+        public List<Relationships> getUpdates() {
+            return updates;
+        }
+
+        public List<String[]> getDeletes() {
+            return deletes;
+        }
+
+        public SnapshotFingerprintIndex getNextIndex() {
+            return nextIndex;
+        }
+
+        public int getChangeCount() {
+            return inserts.size() + updates.size() + deletes.size();
+        }
+
+        @Override
+        public String toString() {
+            int duplicates = snapshotSize - nextIndex.size();
+            return inserts.size() + " inserts, " + updates.size() + " updates, " + deletes.size() + " deletes, "
+                + (nextIndex.size() - inserts.size() - updates.size()) + " unchanged"
+                + (duplicates > 0 ? ", " + duplicates + " repeated keys" : "");
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+
+// Parallel load of a full snapshot with all-or-nothing visibility.
+// The snapshot is split into one contiguous partition per worker; every worker takes its own connection
+// and commits its partition into the staging table in a single transaction. Only when every partition
+// committed are the publish statements run, together in one transaction, to swap or merge the staging
+// table into the live one. Any failure leaves the live table untouched.
+// With a reasons staging table, each partition's child rows are staged in the same transaction as its
+// parents, and the publish statements move both tables at once: readers never see parents without reasons.
+// Loads sharing a staging table run one after the other in this JVM: a second load would truncate or
+// publish the first one's half-staged rows. Separate processes need separate staging tables.
+public class StagingBulkLoader {
+
+    // One lock per staging table, keyed by its truncate statement
+    private static final Map<String, ReentrantLock> STAGING_LOCKS = new ConcurrentHashMap<>();
+
+    private final DataSource dataSource;
+    private final String truncateStagingSql;
+    private final String insertStagingSql;
+    private final String truncateReasonsStagingSql;
+    private final String insertReasonsStagingSql;
+    private final List<String> publishSql;
+    private final Executor executor;
+    private final int workers;
+    private final int batchSize;
+    private final boolean allowEmpty;
+
+    // insertStagingSql takes the same 6 parameters as QRY_SAVE_INTERNALRATINGSEVENTS; executor must be able
+    // to run the given number of workers, each holding one connection. Without allowEmpty an empty
+    // snapshot is refused, publishing it would replace the live table with nothing.
+    public StagingBulkLoader(DataSource dataSource, String truncateStagingSql, String insertStagingSql,
+                             List<String> publishSql, Executor executor, int workers, int batchSize, boolean allowEmpty) {
+        this(dataSource, truncateStagingSql, insertStagingSql, null, null, publishSql, executor, workers, batchSize, allowEmpty);
+    }
+
+    // insertReasonsStagingSql takes the same 5 parameters as QRY_SAVE_INTERNALRATINGSEVENT_REASONS;
+    // publishSql must then publish the reasons staging table too, children after their parents
+    public StagingBulkLoader(DataSource dataSource, String truncateStagingSql, String insertStagingSql,
+                             String truncateReasonsStagingSql, String insertReasonsStagingSql, List<String> publishSql,
+                             Executor executor, int workers, int batchSize, boolean allowEmpty) {
+        this.dataSource = dataSource;
+        this.truncateStagingSql = truncateStagingSql;
+        this.insertStagingSql = insertStagingSql;
+        this.truncateReasonsStagingSql = truncateReasonsStagingSql;
+        this.insertReasonsStagingSql = insertReasonsStagingSql;
+        this.publishSql = publishSql;
+        this.executor = executor;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.allowEmpty = allowEmpty;
+    }
+
+    // Returns the number of rows published
+    public int load(List<Relationships> relationships) throws SQLException {
+        if (relationships.isEmpty() && !allowEmpty) {
+            throw new IllegalStateException("Refusing to publish an empty snapshot, the live table would be emptied");
+        }
+        ReentrantLock lock = STAGING_LOCKS.computeIfAbsent(truncateStagingSql, sql -> new ReentrantLock(true));
+        if (!lock.tryLock()) {
+            System.out.println("Another load is using the staging table, waiting for it to publish");
+            lock.lock();
+        }
+        try {
+            return stageAndPublish(relationships);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int stageAndPublish(List<Relationships> relationships) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        executeInTransaction(insertReasonsStagingSql != null
+            ? List.of(truncateReasonsStagingSql, truncateStagingSql)
+            : List.of(truncateStagingSql));
+
+        int partitions = Math.max(1, Math.min(workers, (relationships.size() + batchSize - 1) / batchSize));
+        int partitionSize = (relationships.size() + partitions - 1) / partitions;
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicInteger staged = new AtomicInteger();
+        AtomicInteger stagedReasons = new AtomicInteger();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = 0; start < relationships.size(); start += partitionSize) {
+            List<Relationships> partition = relationships.subList(start, Math.min(start + partitionSize, relationships.size()));
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    staged.addAndGet(stagePartition(partition, aborted, stagedReasons));
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        SQLException failure = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                aborted.set(true);
+                if (failure == null) {
+                    failure = e.getCause() instanceof SQLException
+                        ? (SQLException) e.getCause()
+                        : new SQLException("Staging partition failed", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            System.err.println("Staging failed, live table left unchanged: " + failure.getMessage());
+            throw failure;
+        }
+
+        long stagedTime = System.currentTimeMillis();
+        executeInTransaction(publishSql);
+        System.out.println("Staged " + staged.get() + " records"
+            + (insertReasonsStagingSql != null ? " and " + stagedReasons.get() + " reasons" : "")
+            + " in " + partitions + " partitions in "
+            + (stagedTime - startTime) + " ms, published in " + (System.currentTimeMillis() - stagedTime) + " ms");
+        return staged.get();
+    }
+
+    private int stagePartition(List<Relationships> partition, AtomicBoolean aborted, AtomicInteger stagedReasons) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(insertStagingSql)) {
+                int rows = 0;
+                for (int i = 0; i < partition.size(); i++) {
+                    InsertStrategy.bindRow(ps, 1, partition.get(i));
+                    ps.addBatch();
+                    if ((i + 1) % batchSize == 0 || i == partition.size() - 1) {
+                        // Another partition failed, nothing of this load will be published
+                        if (aborted.get()) {
+                            connection.rollback();
+                            return 0;
+                        }
+                        ps.executeBatch();
+                        rows += (i % batchSize) + 1;
+                    }
+                }
+                if (insertReasonsStagingSql != null) {
+                    int reasons = stageReasons(connection, partition, aborted);
+                    if (reasons < 0) {
+                        connection.rollback();
+                        return 0;
+                    }
+                    stagedReasons.addAndGet(reasons);
+                }
+                connection.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                aborted.set(true);
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Child rows of the partition, on its connection and in its transaction; -1 when the load was aborted
+    private int stageReasons(Connection connection, List<Relationships> partition, AtomicBoolean aborted) throws SQLException {
+        ReasonsBatchSetter setter = new ReasonsBatchSetter(partition);
+        try (PreparedStatement ps = connection.prepareStatement(insertReasonsStagingSql)) {
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                setter.setValues(ps, i);
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == setter.getBatchSize() - 1) {
+                    if (aborted.get()) {
+                        return -1;
+                    }
+                    ps.executeBatch();
+                }
+            }
+        }
+        return setter.getBatchSize();
+    }
+
+    private void executeInTransaction(List<String> statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
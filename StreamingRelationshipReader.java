@@ -0,0 +1,199 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+public class StreamingRelationshipReader {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final String RELATIONSHIPS_FIELD = "relationships";
+
+    private final MaestroCodec codec;
+    private final ObjectReader relationshipsReader;
+
+    public StreamingRelationshipReader() {
+        codec = MaestroCodec.shared();
+        relationshipsReader = codec.relationshipsReader();
+    }
+
+    // Inflates the snapshot on the fly and hands every relationship to the consumer, returns how many were read
+    public int readGzip(InputStream compressed, Consumer<Relationships> consumer) throws IOException {
+        return drain(openGzip(compressed), consumer);
+    }
+
+    // Same as readGzip, but the codec (gzip, zlib, deflate or plain JSON) is sniffed from the body
+    public int read(InputStream body, String contentEncoding, Consumer<Relationships> consumer) throws IOException {
+        return drain(open(PayloadCodec.shared().decodingStream(body, contentEncoding)), consumer);
+    }
+
+    private int drain(RelationshipIterator relationships, Consumer<Relationships> consumer) throws IOException {
+        try (RelationshipIterator iterator = relationships) {
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Fills the columns straight from the token stream, without a Relationships object per row. Whenever
+    // batchSize rows are buffered they are handed to onBatch and the columns are cleared for the next ones.
+    public int readColumns(InputStream body, String contentEncoding, RelationshipColumns columns, int batchSize,
+                           Consumer<RelationshipColumns> onBatch) throws IOException {
+        try (RelationshipIterator iterator = open(PayloadCodec.shared().decodingStream(body, contentEncoding))) {
+            int count = 0;
+            while (iterator.nextInto(columns)) {
+                count++;
+                if (columns.size() >= batchSize) {
+                    onBatch.accept(columns);
+                    columns.clear();
+                }
+            }
+            if (columns.size() > 0) {
+                onBatch.accept(columns);
+                columns.clear();
+            }
+            return count;
+        }
+    }
+
+    public RelationshipIterator openGzip(InputStream compressed) throws IOException {
+        return open(new GZIPInputStream(compressed, GZIP_BUFFER_SIZE));
+    }
+
+    // Accepts an already decompressed JSON stream, either an array of events or a single event
+    public RelationshipIterator open(InputStream json) throws IOException {
+        return new RelationshipIterator(codec.getFactory().createParser(json));
+    }
+
+    // Walks the token stream and only materialises one Relationships object at a time.
+    // Anything outside the "relationships" arrays is skipped without being bound.
+    public class RelationshipIterator implements Iterator<Relationships>, Closeable {
+        private final JsonParser parser;
+        private boolean started;
+        private boolean rootIsArray;
+        private boolean inEvent;
+        private boolean inRelationships;
+        private boolean finished;
+        private Relationships next;
+
+        RelationshipIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = advance();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Relationships next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Relationships current = next;
+            next = null;
+            return current;
+        }
+
+        // Appends the next relationship to the columns, false once the stream is exhausted
+        public boolean nextInto(RelationshipColumns columns) throws IOException {
+            if (next != null) {
+                columns.add(next);
+                next = null;
+                return true;
+            }
+            if (finished || !seekRelationship()) {
+                return false;
+            }
+            ResponseInternalRatingsEventDeserializer.readRelationshipInto(parser, columns);
+            return true;
+        }
+
+        private Relationships advance() throws IOException {
+            return seekRelationship() ? relationshipsReader.readValue(parser) : null;
+        }
+
+        // Leaves the parser on the START_OBJECT of the next relationship, false at the end of the stream
+        private boolean seekRelationship() throws IOException {
+            if (!started) {
+                started = true;
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    rootIsArray = true;
+                } else if (token == JsonToken.START_OBJECT) {
+                    inEvent = true;
+                } else {
+                    finished = true;
+                    return false;
+                }
+            }
+
+            while (true) {
+                if (inRelationships) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.START_OBJECT) {
+                        return true;
+                    } else if (token == JsonToken.END_ARRAY || token == null) {
+                        inRelationships = false;
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else if (inEvent) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.FIELD_NAME) {
+                        String fieldName = parser.getCurrentName();
+                        JsonToken value = parser.nextToken();
+                        if (RELATIONSHIPS_FIELD.equals(fieldName) && value == JsonToken.START_ARRAY) {
+                            inRelationships = true;
+                        } else if (RELATIONSHIPS_FIELD.equals(fieldName) && value == JsonToken.START_OBJECT) {
+                            // Single relationship instead of an array, same as ACCEPT_SINGLE_VALUE_AS_ARRAY
+                            return true;
+                        } else {
+                            parser.skipChildren();
+                        }
+                    } else {
+                        inEvent = false;
+                    }
+                } else if (rootIsArray) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.START_OBJECT) {
+                        inEvent = true;
+                    } else if (token == JsonToken.END_ARRAY || token == null) {
+                        finished = true;
+                        return false;
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else {
+                    finished = true;
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            parser.close();
+        }
+    }
+}
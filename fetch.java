@@ -1,68 +1,78 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import org.apache.commons.io.IOUtils;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.function.Consumer;
 
 public class ApiDataFetcher {
-    
+
+    private final StreamingRelationshipReader streamingReader = new StreamingRelationshipReader();
+    // Rows repeating a (bdrId, businessEntity) across wrappers: null loads every copy, see RelationshipDeduplicator.Rule.parse
+    private final RelationshipDeduplicator.Rule dedupRule;
+
+    public ApiDataFetcher() {
+        this(null);
+    }
+
+    public ApiDataFetcher(RelationshipDeduplicator.Rule dedupRule) {
+        this.dedupRule = dedupRule;
+    }
+
     public ResponseInternalRatingsEvent fetchData(Result result) {
-        if (result.getStatus() == 200) {
+        // Result only exposes the body as a String, so this is the one place that still converts it back to bytes
+        return fetchData(result.getStatus(), result.getBody().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, byte[] body) {
+        return fetchData(status, new ByteArrayInputStream(body));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, ByteBuffer body) {
+        return fetchData(status, PayloadCodec.asStream(body));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, InputStream body) {
+        if (status == 200) {
             System.out.println("Successfully received data from Maestro");
-            byte[] compressedBytes = result.getBody().getBytes(StandardCharsets.ISO_8859_1);
-            String decompressedJson = decompressGzipContent(compressedBytes);
-            
-            if (decompressedJson != null) {
-                return processJsonData(decompressedJson);
-            }
+            return processJsonData(body);
         } else {
-            System.err.println("Unexpected status code: " + result.getStatus());
+            System.err.println("Unexpected status code: " + status);
         }
         return null;
     }
-    
-    private String decompressGzipContent(byte[] compressedBytes) {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-             InputStreamReader reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8)) {
-            return IOUtils.toString(reader);
+
+    // Streaming mode: relationships are handed out one at a time, the snapshot is never held as a String
+    public int fetchData(Result result, Consumer<Relationships> consumer) {
+        return fetchData(result.getStatus(), new ByteArrayInputStream(result.getBody().getBytes(StandardCharsets.ISO_8859_1)), consumer);
+    }
+
+    public int fetchData(int status, InputStream body, Consumer<Relationships> consumer) {
+        if (status != 200) {
+            System.err.println("Unexpected status code: " + status);
+            return -1;
+        }
+        System.out.println("Successfully received data from Maestro");
+        try {
+            int count = streamingReader.read(body, null, consumer);
+            System.out.println("Total relationships streamed: " + count);
+            return count;
         } catch (IOException e) {
-            System.err.println("Error decompressing GZIP content: " + e.getMessage());
+            System.err.println("Error streaming content: " + e.getMessage());
             e.printStackTrace();
-            return null;
+            return -1;
         }
     }
     
-    private ResponseInternalRatingsEvent processJsonData(String json) {
-        try {
-            ObjectMapper mapperObj = new ObjectMapper();
-            mapperObj.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-            mapperObj.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            
+    private ResponseInternalRatingsEvent processJsonData(InputStream body) {
+        // Decompression happens inside the stream Jackson reads from, no intermediate String
+        try (InputStream json = PayloadCodec.shared().decodingStream(body, null)) {
             // Parse the JSON as a list of ResponseInternalRatingsEvent objects
-            List<ResponseInternalRatingsEvent> responseObjects = mapperObj.readValue(json, 
-                new TypeReference<List<ResponseInternalRatingsEvent>>() {});
-            
-            // Combine all relationships into a single list
-            List<Relationship> allRelationships = new ArrayList<>();
-            for (ResponseInternalRatingsEvent wrapper : responseObjects) {
-                if (wrapper.getRelationships() != null) {
-                    allRelationships.addAll(wrapper.getRelationships());
-                }
-            }
-            
-            // Create a new object with all relationships
-            ResponseInternalRatingsEvent transformedData = new ResponseInternalRatingsEvent();
-            transformedData.setRelationships(allRelationships);
+            List<ResponseInternalRatingsEvent> responseObjects = MaestroCodec.shared().eventListReader().readValue(json);
             
-            // Convert back to JSON and then to a single ResponseInternalRatingsEvent object
-            String transformedJson = mapperObj.writeValueAsString(transformedData);
-            return mapperObj.readValue(transformedJson, ResponseInternalRatingsEvent.class);
+            // Combine all relationships into a single event
+            return RatingsEventAggregator.merge(responseObjects, dedupRule);
         } catch (IOException e) {
             System.err.println("Error processing JSON data: " + e.getMessage());
             e.printStackTrace();
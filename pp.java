@@ -1,84 +1,512 @@
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 public class DbeClientDaoImpl implements DbeClientDao {
     private static final int BATCH_SIZE = 10000;
-    private static final int THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
     private static final int LOG_INTERVAL = 50000;
+    // true: rename staging and live tables (needs transactional DDL), false: delete + insert-select in one transaction
+    private static final boolean PUBLISH_BY_SWAP = false;
+    private static final int MULTI_ROW_VALUES_ROWS = 300;
+    private static final long TARGET_BATCH_LATENCY_MILLIS = 2000;
+    private static final int MIN_BATCH_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = AdaptiveBatchController.LARGEST_BATCH_SIZE;
+    // Connections left to the rest of the application while a snapshot loads
+    private static final int INGEST_RESERVED_CONNECTIONS = 2;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // jdbc-batch, multi-row-values or array-binding (PostgreSQL unnest over column arrays)
+    @Value("${dbeclient.insert-strategy:jdbc-batch}")
+    private String insertStrategyName;
+
+    private volatile InsertStrategy insertStrategy;
+
+    // Also load every Reasons entry into the child table, next to the parent rows
+    @Value("${dbeclient.load-reasons:false}")
+    private boolean loadReasons;
+
+    // Recovery mode: a batch rejected for bad data is bisected, the offending rows go to the quarantine
+    // table and the rest is committed instead of failing the whole snapshot. QRY_SAVE_QUARANTINE_INTERNALRATINGSEVENTS
+    // takes the load id first, see BisectingBatchInserter
+    @Value("${dbeclient.quarantine-bad-rows:false}")
+    private boolean quarantineBadRows;
+
+    private BisectingBatchInserter bisectingInserter;
+
+    // An empty snapshot replaces a loaded table with nothing. Unless allowed, it is taken for a broken
+    // upstream response and refused; callers can still allow it for a single load.
+    @Value("${dbeclient.allow-empty-snapshot:false}")
+    private boolean allowEmptySnapshot;
+
+    private final JdbcBatchInsertStrategy columnarInsert = new JdbcBatchInsertStrategy(QRY_SAVE_INTERNALRATINGSEVENTS.value());
+
+    // Same pool the JdbcTemplate draws from (HikariCP default is 10)
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int jdbcPoolSize;
+
+    // Shared by every load of this DAO, one thread per connection it may hold
+    private IngestExecutor ingestExecutor;
+
+    // Every IngestPipeline writing through saveRelationshipsBatch shares this lane
+    private IngestExecutor.Lane pipelineLane;
+
     private AtomicInteger totalInserted = new AtomicInteger(0);
+    private AtomicInteger totalReasonsInserted = new AtomicInteger(0);
 
-    @Transactional
+    private AdaptiveBatchController batchController;
+
+    // Fingerprints of the last snapshot loaded through the delta path, null until the first full reload
+    private volatile SnapshotFingerprintIndex lastSnapshotIndex;
+
+    @PostConstruct
+    public void startIngestExecutor() {
+        int concurrency = IngestExecutor.concurrencyFor(jdbcPoolSize, INGEST_RESERVED_CONNECTIONS);
+        ingestExecutor = new IngestExecutor(concurrency);
+        pipelineLane = ingestExecutor.newLane("pipeline");
+        bisectingInserter = new BisectingBatchInserter(
+            jdbcTemplate.getDataSource(), QRY_SAVE_INTERNALRATINGSEVENTS.value(), QRY_SAVE_QUARANTINE_INTERNALRATINGSEVENTS.value());
+        // Starts at BATCH_SIZE and half the connections, then follows the measured batchUpdate latency across runs
+        batchController = new AdaptiveBatchController(
+            TARGET_BATCH_LATENCY_MILLIS, BATCH_SIZE, MIN_BATCH_SIZE, MAX_BATCH_SIZE,
+            Math.max(1, concurrency / 2), 1, concurrency);
+        System.out.println("Ingest executor started with " + concurrency + " of " + jdbcPoolSize + " JDBC connections");
+    }
+
+    @PreDestroy
+    public void stopIngestExecutor() {
+        ingestExecutor.shutdown();
+    }
+
+    // Replaces the live table with this snapshot through the staging table, see saveInternalRatingEventsApiStaged.
+    // In recovery mode (dbeclient.quarantine-bad-rows) the rows are appended instead and every batch commits
+    // on its own, so bad rows can be set aside: a failure leaves the batches committed so far in place.
+    // Not @Transactional either way, the rows are written on IngestExecutor connections.
     public void saveInternalRatingEventsApi(ResponseInternalRatingsEvent internalRatingsEventResponse) {
+        if (!quarantineBadRows) {
+            saveInternalRatingEventsApiStaged(internalRatingsEventResponse);
+            return;
+        }
+        if (SnapshotChangeTracker.isUnchanged(internalRatingsEventResponse)) {
+            System.out.println("Snapshot unchanged since the last load, nothing to write");
+            return;
+        }
         List<Relationships> relationshipsArrayList = internalRatingsEventResponse.getRelationships();
         int totalSize = relationshipsArrayList.size();
         System.out.println("Total records to process: " + totalSize);
 
         if (totalSize > 0) {
             long startTime = System.currentTimeMillis();
-            
-            ExecutorService executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-            
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-
-            for (int i = 0; i < totalSize; i += BATCH_SIZE) {
-                int end = Math.min(i + BATCH_SIZE, totalSize);
-                List<Relationships> batch = relationshipsArrayList.subList(i, end);
-                
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> processBatch(batch), executorService);
-                futures.add(future);
-            }
+            insertInBatches(relationshipsArrayList);
+            logProgress(totalInserted.get(), startTime);
+        }
+    }
+
+    // Loads the snapshot of one date in place of whatever that date already holds, e.g. the rows of an
+    // interrupted load. Rows are stored with their snapshot date and only that date's rows are deleted, in
+    // the same transaction as the reload, on a single connection: see DatedSnapshotLoader.
+    public void replaceInternalRatingEventsApi(String snapshotDate, ResponseInternalRatingsEvent internalRatingsEventResponse) {
+        if (SnapshotChangeTracker.isUnchanged(internalRatingsEventResponse)) {
+            System.out.println("Snapshot unchanged since the last load, nothing to write");
+            return;
+        }
+        List<Relationships> relationshipsArrayList = internalRatingsEventResponse.getRelationships();
+        DatedSnapshotLoader loader = new DatedSnapshotLoader(
+            jdbcTemplate.getDataSource(),
+            QRY_DELETE_SNAPSHOT_DATE_INTERNALRATINGSEVENTS.value(),
+            QRY_SAVE_DATED_INTERNALRATINGSEVENTS.value(),
+            loadReasons ? QRY_DELETE_SNAPSHOT_DATE_INTERNALRATINGSEVENT_REASONS.value() : null,
+            loadReasons ? QRY_SAVE_DATED_INTERNALRATINGSEVENT_REASONS.value() : null,
+            BATCH_SIZE
+        );
+        long startTime = System.currentTimeMillis();
+        try {
+            logProgress(loader.replace(snapshotDate, relationshipsArrayList), startTime);
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("replace snapshot " + snapshotDate, null, e);
+        }
+    }
+
+    // Connections a single load may hold at once, besides the caller's own
+    public int getIngestConcurrency() {
+        return ingestExecutor.getConcurrency();
+    }
 
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            executorService.shutdown();
-            
+    // Same load as saveInternalRatingEventsApi for a snapshot held in a RelationshipStore, staged or, in
+    // recovery mode, appended batch by batch; batches and partitions are views over the store, so only the
+    // rows being written are ever decoded
+    public void saveRelationshipStore(RelationshipStore store) {
+        System.out.println("Total records to process: " + store.size() + " (" + store + ")");
+        if (!quarantineBadRows) {
+            loadStaged(store.asList(), allowEmptySnapshot);
+            return;
+        }
+        if (store.size() > 0) {
+            long startTime = System.currentTimeMillis();
+            insertInBatches(store.asList());
             logProgress(totalInserted.get(), startTime);
         }
     }
 
-    private void processBatch(List<Relationships> batch) {
+    // Sends only what changed since the previous snapshot. The table is expected to hold exactly that
+    // snapshot keyed by (bdrId, businessEntity); without an index in this process the table is reloaded.
+    // Deletes, updates and inserts all run on the caller's thread, so they share its transaction and the
+    // delta commits or rolls back as a whole.
+    @Transactional
+    public void saveInternalRatingEventsApiDelta(ResponseInternalRatingsEvent internalRatingsEventResponse) {
+        saveInternalRatingEventsApiDelta(internalRatingsEventResponse, allowEmptySnapshot);
+    }
+
+    // allowEmpty: an empty snapshot deletes every row of the previous one instead of being refused
+    @Transactional
+    public void saveInternalRatingEventsApiDelta(ResponseInternalRatingsEvent internalRatingsEventResponse, boolean allowEmpty) {
+        if (SnapshotChangeTracker.isUnchanged(internalRatingsEventResponse)) {
+            System.out.println("Snapshot unchanged since the last load, nothing to write");
+            return;
+        }
+        List<Relationships> relationshipsArrayList = internalRatingsEventResponse.getRelationships();
+        long startTime = System.currentTimeMillis();
+        SnapshotFingerprintIndex previous = lastSnapshotIndex;
+
+        if (relationshipsArrayList.isEmpty() && previous != null && previous.size() > 0 && !allowEmpty) {
+            throw new IllegalStateException("Refusing an empty snapshot, it would delete all " + previous.size()
+                + " loaded records; set dbeclient.allow-empty-snapshot to load it");
+        }
+
+        if (previous == null) {
+            System.out.println("No previous snapshot fingerprints, reloading all " + relationshipsArrayList.size() + " records");
+            // The staged load has published and committed on its own connections when it returns
+            saveInternalRatingEventsApiStaged(internalRatingsEventResponse, allowEmpty);
+            lastSnapshotIndex = SnapshotFingerprintIndex.of(relationshipsArrayList);
+            logProgress(relationshipsArrayList.size(), startTime);
+            return;
+        }
+
+        SnapshotFingerprintIndex.Delta delta = previous.diff(relationshipsArrayList);
+        System.out.println("Snapshot delta computed in " + (System.currentTimeMillis() - startTime) + " ms: " + delta);
+
+        if (loadReasons) {
+            // Children of deleted and updated rows go first, updated rows get their current reasons back
+            List<String[]> changedKeys = new ArrayList<>(delta.getDeletes());
+            for (Relationships relationship : delta.getUpdates()) {
+                changedKeys.add(new String[] {relationship.getBdrId(), relationship.getBusinessEntity()});
+            }
+            executeDeletes(changedKeys, QRY_DELETE_INTERNALRATINGSEVENT_REASONS.value());
+        }
+        executeDeletes(delta.getDeletes(), QRY_DELETE_INTERNALRATINGSEVENTS.value());
+        executeUpdates(delta.getUpdates());
+        if (loadReasons) {
+            insertReasonsOnCallerConnection(delta.getUpdates());
+        }
+        insertOnCallerConnection(delta.getInserts());
+
+        // Only a delta that reached the database becomes the baseline for the next one
+        advanceIndexAfterCommit(delta.getNextIndex());
+        logProgress(delta.getChangeCount(), startTime);
+    }
+
+    // With a transaction active the index moves once it committed, a rollback keeps the previous baseline
+    private void advanceIndexAfterCommit(SnapshotFingerprintIndex next) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lastSnapshotIndex = next;
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastSnapshotIndex = next;
+            }
+        });
+    }
+
+    // Replaces the live table with this snapshot. Workers load the staging table on their own connections
+    // and transactions, so this is deliberately not @Transactional; readers see the old or the new snapshot.
+    // With dbeclient.load-reasons the reasons table is staged and published in the same step.
+    public void saveInternalRatingEventsApiStaged(ResponseInternalRatingsEvent internalRatingsEventResponse) {
+        saveInternalRatingEventsApiStaged(internalRatingsEventResponse, allowEmptySnapshot);
+    }
+
+    // allowEmpty: an empty snapshot empties the live table instead of being refused
+    public void saveInternalRatingEventsApiStaged(ResponseInternalRatingsEvent internalRatingsEventResponse, boolean allowEmpty) {
+        if (SnapshotChangeTracker.isUnchanged(internalRatingsEventResponse)) {
+            System.out.println("Snapshot unchanged since the last load, nothing to write");
+            return;
+        }
+        loadStaged(internalRatingsEventResponse.getRelationships(), allowEmpty);
+    }
+
+    private void loadStaged(List<Relationships> relationshipsArrayList, boolean allowEmpty) {
+        System.out.println("Total records to stage: " + relationshipsArrayList.size());
+        List<String> publishSql;
+        if (!loadReasons) {
+            publishSql = PUBLISH_BY_SWAP
+                ? List.of(QRY_SWAP_STAGING_INTERNALRATINGSEVENTS.value())
+                : List.of(QRY_DELETE_ALL_INTERNALRATINGSEVENTS.value(), QRY_PUBLISH_STAGING_INTERNALRATINGSEVENTS.value());
+        } else {
+            // Children leave before and come back after their parents, as a foreign key would require
+            publishSql = PUBLISH_BY_SWAP
+                ? List.of(QRY_SWAP_STAGING_INTERNALRATINGSEVENTS.value(), QRY_SWAP_STAGING_INTERNALRATINGSEVENT_REASONS.value())
+                : List.of(QRY_DELETE_ALL_INTERNALRATINGSEVENT_REASONS.value(), QRY_DELETE_ALL_INTERNALRATINGSEVENTS.value(),
+                    QRY_PUBLISH_STAGING_INTERNALRATINGSEVENTS.value(), QRY_PUBLISH_STAGING_INTERNALRATINGSEVENT_REASONS.value());
+        }
+        StagingBulkLoader loader = new StagingBulkLoader(
+            jdbcTemplate.getDataSource(),
+            QRY_TRUNCATE_STAGING_INTERNALRATINGSEVENTS.value(),
+            QRY_SAVE_STAGING_INTERNALRATINGSEVENTS.value(),
+            loadReasons ? QRY_TRUNCATE_STAGING_INTERNALRATINGSEVENT_REASONS.value() : null,
+            loadReasons ? QRY_SAVE_STAGING_INTERNALRATINGSEVENT_REASONS.value() : null,
+            publishSql,
+            ingestExecutor.newLane("staging"),
+            ingestExecutor.getConcurrency(),
+            BATCH_SIZE,
+            allowEmpty
+        );
+        long startTime = System.currentTimeMillis();
+        try {
+            int published = loader.load(relationshipsArrayList);
+            logProgress(published, startTime);
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("staged snapshot load", null, e);
+        }
+    }
+
+    private void insertInBatches(List<Relationships> relationshipsArrayList) {
+        int totalSize = relationshipsArrayList.size();
+        if (totalSize == 0) {
+            return;
+        }
+
+        // Rows this load quarantines are stored under its id, and it logs its own first bad rows
+        BisectingBatchInserter.Load load = null;
+        if (quarantineBadRows) {
+            load = bisectingInserter.newLoad(UUID.randomUUID().toString());
+            System.out.println("Load " + load.getLoadId() + ": bad rows are quarantined under this id");
+        }
+        // Keeps at most the controller's worker count of batches queued or running for this load; the
+        // next range is cut at the current batch size, so adjustments apply mid-load. With reasons, a
+        // batch's children are inserted by the same task once its parents are committed.
+        IngestExecutor.Lane lane = ingestExecutor.newLane("insert");
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        int next = 0;
+
+        while (next < totalSize) {
+            // join() rethrows the failure of a finished batch
+            inFlight.removeIf(future -> future.isDone() && future.join() == null);
+            if (inFlight.size() >= batchController.getWorkers()) {
+                CompletableFuture.anyOf(inFlight.toArray(new CompletableFuture[0])).join();
+                continue;
+            }
+            int end = Math.min(next + batchController.getBatchSize(), totalSize);
+            List<Relationships> batch = relationshipsArrayList.subList(next, end);
+            next = end;
+
+            if (load != null) {
+                BisectingBatchInserter.Load batchLoad = load;
+                inFlight.add(lane.submit(() -> insertIsolatingBadRows(batchLoad, batch, true)));
+                continue;
+            }
+            inFlight.add(lane.submit(() -> {
+                long batchStart = System.nanoTime();
+                processBatch(batch);
+                batchController.record(batch.size(), System.nanoTime() - batchStart);
+                if (loadReasons) {
+                    insertReasons(batch);
+                }
+            }));
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        if (loadReasons) {
+            System.out.println("Inserted " + totalReasonsInserted.get() + " reasons");
+        }
+        if (load != null && load.getQuarantinedRows() > 0) {
+            System.err.println("Load " + load.getLoadId() + " quarantined " + load.getQuarantinedRows() + " records, "
+                + load.getRetriedBatches() + " batches split");
+        }
+    }
+
+    // Reasons follow their parent batch on the same worker, so quarantined rows get no children.
+    // controllerSized: the batch was cut at the controller's batch size, so its latency is fed back to it.
+    private int insertIsolatingBadRows(BisectingBatchInserter.Load load, List<Relationships> batch, boolean controllerSized) {
+        long batchStart = System.nanoTime();
+        BisectingBatchInserter.Result result;
+        try {
+            result = load.insert(batch);
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("batch insert with bad row isolation", null, e);
+        }
+        // A bisected batch says nothing about the latency of a clean one
+        if (controllerSized && result.getQuarantined().isEmpty()) {
+            batchController.record(batch.size(), System.nanoTime() - batchStart);
+        }
+
+        int inserted = result.getInserted().size();
+        int newTotal = totalInserted.addAndGet(inserted);
+        if (newTotal % LOG_INTERVAL == 0) {
+            logProgress(newTotal, System.currentTimeMillis());
+        }
+        if (loadReasons) {
+            insertReasons(result.getInserted());
+        }
+        return inserted;
+    }
+
+    // Sequential batches through jdbcTemplate on the calling thread, inside its transaction. No bad row
+    // isolation here: the bisecting inserter commits on its own connection, a bad row fails the whole call.
+    private void insertOnCallerConnection(List<Relationships> relationships) {
+        for (int i = 0; i < relationships.size(); i += BATCH_SIZE) {
+            List<Relationships> batch = relationships.subList(i, Math.min(i + BATCH_SIZE, relationships.size()));
+            processBatch(batch);
+            if (loadReasons) {
+                insertReasons(batch);
+            }
+        }
+    }
+
+    // Child rows only, for parents that are already in place; on the calling thread like insertOnCallerConnection
+    private void insertReasonsOnCallerConnection(List<Relationships> relationships) {
+        for (int i = 0; i < relationships.size(); i += BATCH_SIZE) {
+            insertReasons(relationships.subList(i, Math.min(i + BATCH_SIZE, relationships.size())));
+        }
+    }
+
+    private int insertReasons(List<Relationships> batch) {
+        ReasonsBatchSetter setter = new ReasonsBatchSetter(batch);
+        if (setter.getBatchSize() == 0) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(QRY_SAVE_INTERNALRATINGSEVENT_REASONS.value(), setter);
+        // Drivers may report SUCCESS_NO_INFO instead of counts, every bound row was sent
+        totalReasonsInserted.addAndGet(setter.getBatchSize());
+        return setter.getBatchSize();
+    }
+
+    // Batch sizes and worker counts chosen so far, with the latency and throughput that drove each change
+    public AdaptiveBatchController getBatchController() {
+        return batchController;
+    }
+
+    // Insert path for rows parsed straight into columns by StreamingRelationshipReader.readColumns;
+    // called on the parsing thread, binds from the columns without Relationships objects
+    public int saveRelationshipColumns(RelationshipColumns columns) {
+        int inserted = columnarInsert.insert(jdbcTemplate, columns);
+        totalInserted.addAndGet(inserted);
+        return inserted;
+    }
+
+    // Sink for IngestPipeline: the pipeline worker waits while the batch is written on the IngestExecutor,
+    // so pipelines share the DAO's connection limit with every other load, whatever their parallelism.
+    // unit is the pipeline unit the batch belongs to, e.g. its snapshotDate.
+    public int saveRelationshipsBatch(String unit, List<Relationships> batch) {
+        return CompletableFuture.supplyAsync(() -> writeRelationshipsBatch(unit, batch), pipelineLane).join();
+    }
+
+    // Pipeline batches have the pipeline's fixed size, not one the batch controller chose, so their
+    // latency is not recorded: the controller would keep rescaling a size it never applied.
+    // Rows quarantined from a batch are stored under its unit, each batch logs its own first bad rows.
+    private int writeRelationshipsBatch(String unit, List<Relationships> batch) {
+        if (quarantineBadRows) {
+            return insertIsolatingBadRows(bisectingInserter.newLoad(unit), batch, false);
+        }
+        int inserted = processBatch(batch);
+        if (loadReasons) {
+            insertReasons(batch);
+        }
+        return inserted;
+    }
+
+    private int processBatch(List<Relationships> batch) {
         int inserted = executeBatch(batch);
         int newTotal = totalInserted.addAndGet(inserted);
         
         if (newTotal % LOG_INTERVAL == 0) {
             logProgress(newTotal, System.currentTimeMillis());
         }
+        return inserted;
     }
 
     private int executeBatch(List<Relationships> batch) {
-        int[] updateCounts = jdbcTemplate.batchUpdate(
-            QRY_SAVE_INTERNALRATINGSEVENTS.value(),
-            new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    Relationships relationship = batch.get(i);
-                    ps.setString(1, relationship.getBdrId());
-                    ps.setString(2, relationship.getBusinessEntity());
-                    ps.setString(3, relationship.getNature());
-                    ps.setString(4, relationship.getStatus());
-                    ps.setNull(5, java.sql.Types.VARCHAR); // Skipping reason.getGoldenBdrId()
-                    ps.setNull(6, java.sql.Types.VARCHAR); // Skipping reason.getLabel()
+        return insertStrategy().insert(jdbcTemplate, batch);
+    }
+
+    private InsertStrategy insertStrategy() {
+        InsertStrategy strategy = insertStrategy;
+        if (strategy == null) {
+            switch (insertStrategyName) {
+                case "multi-row-values":
+                    strategy = new MultiRowValuesInsertStrategy(QRY_SAVE_INTERNALRATINGSEVENTS.value(), MULTI_ROW_VALUES_ROWS);
+                    break;
+                case "array-binding":
+                    strategy = new ArrayBindingInsertStrategy(QRY_SAVE_ARRAY_INTERNALRATINGSEVENTS.value(), "varchar");
+                    break;
+                case "jdbc-batch":
+                    strategy = new JdbcBatchInsertStrategy(QRY_SAVE_INTERNALRATINGSEVENTS.value());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown dbeclient.insert-strategy: " + insertStrategyName);
+            }
+            System.out.println("Using insert strategy " + insertStrategyName);
+            insertStrategy = strategy;
+        }
+        return strategy;
+    }
+
+    private void executeUpdates(List<Relationships> updates) {
+        for (int i = 0; i < updates.size(); i += BATCH_SIZE) {
+            List<Relationships> batch = updates.subList(i, Math.min(i + BATCH_SIZE, updates.size()));
+            jdbcTemplate.batchUpdate(
+                QRY_UPDATE_INTERNALRATINGSEVENTS.value(),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Relationships relationship = batch.get(i);
+                        ps.setString(1, relationship.getNature());
+                        ps.setString(2, relationship.getStatus());
+                        ps.setNull(3, java.sql.Types.VARCHAR); // Skipping reason.getGoldenBdrId(), as on insert
+                        ps.setNull(4, java.sql.Types.VARCHAR); // Skipping reason.getLabel(), as on insert
+                        ps.setString(5, relationship.getBdrId());
+                        ps.setString(6, relationship.getBusinessEntity());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
                 }
+            );
+        }
+    }
+
+    // deleteSql takes (bdrId, businessEntity)
+    private void executeDeletes(List<String[]> deletes, String deleteSql) {
+        for (int i = 0; i < deletes.size(); i += BATCH_SIZE) {
+            List<String[]> batch = deletes.subList(i, Math.min(i + BATCH_SIZE, deletes.size()));
+            jdbcTemplate.batchUpdate(
+                deleteSql,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        String[] key = batch.get(i);
+                        ps.setString(1, key[0]);
+                        ps.setString(2, key[1]);
+                    }
 
-                @Override
-                public int getBatchSize() {
-                    return batch.size();
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
                 }
-            }
-        );
-        return Arrays.stream(updateCounts).sum();
+            );
+        }
     }
 
     private void logProgress(int totalInserted, long startTime) {
@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Feeds the controller synthetic windows of batches, each batch taking an exact latency. Target 2000 ms,
+// batch size within [500, 50000], workers within [1, 4]: a window is 4 batches.
+class AdaptiveBatchControllerTest {
+
+    private static final long TARGET_MILLIS = 2000;
+    private static final int WINDOW = 4;
+
+    @Test
+    void initialValuesAndLimitsAreClamped() {
+        AdaptiveBatchController small = new AdaptiveBatchController(TARGET_MILLIS, 10, 500, 50000, 0, 1, 4);
+        assertEquals(500, small.getBatchSize());
+        assertEquals(1, small.getWorkers());
+
+        AdaptiveBatchController large = new AdaptiveBatchController(TARGET_MILLIS, 1_000_000, 500, 1_000_000, 9, 1, 4);
+        assertEquals(AdaptiveBatchController.LARGEST_BATCH_SIZE, large.getBatchSize());
+        assertEquals(4, large.getWorkers());
+    }
+
+    @Test
+    void batchSizeScalesWithTargetOverLatency() {
+        AdaptiveBatchController controller = controller(10000, 2);
+
+        window(controller, 10000, 2500);
+        assertEquals(8000, controller.getBatchSize());
+        window(controller, 8000, 1600);
+        assertEquals(10000, controller.getBatchSize());
+    }
+
+    @Test
+    void batchSizeAtMostDoublesOrHalvesPerWindow() {
+        AdaptiveBatchController controller = controller(10000, 2);
+
+        window(controller, 10000, 100);
+        assertEquals(20000, controller.getBatchSize());
+        window(controller, 20000, 60000);
+        assertEquals(10000, controller.getBatchSize());
+    }
+
+    @Test
+    void batchSizeStaysWithinItsBounds() {
+        AdaptiveBatchController controller = controller(40000, 2);
+        window(controller, 40000, 100);
+        assertEquals(50000, controller.getBatchSize());
+        window(controller, 50000, 100);
+        assertEquals(50000, controller.getBatchSize());
+
+        controller = controller(600, 2);
+        window(controller, 600, 10000);
+        assertEquals(500, controller.getBatchSize());
+        assertEquals(List.of(600), fromBatchSizes(controller));
+    }
+
+    @Test
+    void nothingChangesBeforeAWindowIsComplete() {
+        AdaptiveBatchController controller = controller(10000, 2);
+        for (int i = 0; i < WINDOW - 1; i++) {
+            controller.record(10000, millis(100));
+        }
+
+        assertEquals(10000, controller.getBatchSize());
+        assertEquals(List.of(), controller.getAdjustments());
+    }
+
+    @Test
+    void workersKeepClimbingWhileThroughputRises() {
+        AdaptiveBatchController controller = controller(10000, 2);
+
+        // Within the latency band: the first window probes one worker up
+        window(controller, 10000, TARGET_MILLIS);
+        assertEquals(3, controller.getWorkers());
+        // 3 workers moved 15000 rows/second against 10000 with 2: keep going, up to the maximum
+        window(controller, 10000, TARGET_MILLIS);
+        assertEquals(4, controller.getWorkers());
+        window(controller, 10000, TARGET_MILLIS);
+        assertEquals(4, controller.getWorkers());
+        assertEquals(10000, controller.getBatchSize());
+    }
+
+    @Test
+    void aStepThatDoesNotPayOffIsReversedAndHeld() {
+        AdaptiveBatchController controller = controller(10000, 2);
+        window(controller, 10000, TARGET_MILLIS);
+        assertEquals(3, controller.getWorkers());
+
+        // 3 workers moved 9000 rows/second, less than the 10000 of 2: step back
+        window(controller, 6000, TARGET_MILLIS);
+        assertEquals(2, controller.getWorkers());
+
+        // Held for 5 windows whatever the throughput
+        for (int i = 0; i < 5; i++) {
+            window(controller, 10000 + 5000 * i, TARGET_MILLIS);
+            assertEquals(2, controller.getWorkers(), "held window " + i);
+        }
+
+        // Probing resumes in the reversed direction
+        window(controller, 40000, TARGET_MILLIS);
+        assertEquals(1, controller.getWorkers());
+        assertEquals(10000, controller.getBatchSize());
+    }
+
+    @Test
+    void workersAreDroppedWhenEvenTheSmallestBatchIsTooSlow() {
+        AdaptiveBatchController controller = controller(500, 3);
+
+        window(controller, 500, 4000);
+        assertEquals(2, controller.getWorkers());
+        assertEquals(500, controller.getBatchSize());
+        window(controller, 500, 4000);
+        assertEquals(1, controller.getWorkers());
+        window(controller, 500, 4000);
+        assertEquals(1, controller.getWorkers());
+    }
+
+    @Test
+    void slowBatchesAboveTheMinimumOnlyShrinkTheBatch() {
+        AdaptiveBatchController controller = controller(10000, 3);
+
+        window(controller, 10000, 4000);
+
+        assertEquals(5000, controller.getBatchSize());
+        assertEquals(3, controller.getWorkers());
+    }
+
+    @Test
+    void historyKeepsTheLast200Adjustments() {
+        AdaptiveBatchController controller = controller(10000, 2);
+        // Alternately grow and halve the batch, every window changes it; the latency tells windows apart
+        for (int w = 0; w < 250; w++) {
+            long latencyMillis = w % 2 == 0 ? 1000 + w : 4000 + w;
+            window(controller, controller.getBatchSize(), latencyMillis);
+        }
+
+        List<AdaptiveBatchController.Adjustment> adjustments = controller.getAdjustments();
+        assertEquals(200, adjustments.size());
+        assertEquals(1050, adjustments.get(0).getLatencyMillis(), 1e-6);
+        assertEquals(4249, adjustments.get(199).getLatencyMillis(), 1e-6);
+        assertEquals(controller.getBatchSize(), adjustments.get(199).getToBatchSize());
+        assertEquals(250L * WINDOW, controller.getTotalBatches());
+    }
+
+    private static AdaptiveBatchController controller(int initialBatchSize, int initialWorkers) {
+        return new AdaptiveBatchController(TARGET_MILLIS, initialBatchSize, 500, 50000, initialWorkers, 1, 4);
+    }
+
+    // One full window of batches of the given rows, each taking latencyMillis
+    private static void window(AdaptiveBatchController controller, int rows, long latencyMillis) {
+        for (int i = 0; i < WINDOW; i++) {
+            controller.record(rows, millis(latencyMillis));
+        }
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static List<Integer> fromBatchSizes(AdaptiveBatchController controller) {
+        return controller.getAdjustments().stream().map(AdaptiveBatchController.Adjustment::getFromBatchSize).toList();
+    }
+}
@@ -0,0 +1,190 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the pager against a local stub server. A gated stub holds every page until the test releases it, so
+// the number of requests outstanding is observed at known points instead of inferred from timings.
+class AdvancedApiDataFetcherTest {
+
+    private static final int PAGES = 12;
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final Pattern PAGE = Pattern.compile("page=(\\d+)");
+
+    @Test
+    void keepsTheWindowFullWithoutExceedingIt() throws Exception {
+        for (int maxInFlight : new int[] {1, 3, 5}) {
+            // A fresh server per window: cancelled speculative pages of one round can't count in the next
+            try (StubServer server = new StubServer(true)) {
+                CompletableFuture<List<ResponseInternalRatingsEvent>> fetch = fetchAsync(server, maxInFlight);
+
+                // Nothing is answered yet, so the pages ahead of the first are all requested and still pending
+                server.awaitArrived(maxInFlight);
+                assertEquals(maxInFlight, server.outstanding.get());
+                for (int page = 1; page <= PAGES; page++) {
+                    // Answering the oldest page frees one slot, which the pager fills with the next page
+                    server.release(page);
+                    server.awaitArrived(page + maxInFlight);
+                }
+                server.release(PAGES + 1);
+
+                assertEquals(PAGES, fetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).size());
+                assertEquals(maxInFlight, server.maxOutstanding.get(), "max outstanding with a window of " + maxInFlight);
+            }
+        }
+    }
+
+    @Test
+    void keepsPageOrder() throws IOException {
+        try (StubServer server = new StubServer(false)) {
+            List<ResponseInternalRatingsEvent> events = new AdvancedApiDataFetcher(server.baseUrl).fetchAllDataConcurrently(4);
+
+            assertEquals(PAGES, events.size());
+            for (int page = 1; page <= PAGES; page++) {
+                assertEquals("page-" + page, events.get(page - 1).getRelationships().get(0).getBdrId());
+            }
+        }
+    }
+
+    @Test
+    void propagatesAFailedPage() throws IOException {
+        try (StubServer server = new StubServer(false)) {
+            server.failingPages.add(5);
+
+            IOException failure = assertThrows(IOException.class,
+                () -> new AdvancedApiDataFetcher(server.baseUrl).fetchAllDataConcurrently(4));
+
+            assertTrue(failure.getMessage().contains("500"), failure.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsAnEmptyWindow() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdvancedApiDataFetcher("http://127.0.0.1:1/data").fetchAllDataConcurrently(0));
+    }
+
+    private static CompletableFuture<List<ResponseInternalRatingsEvent>> fetchAsync(StubServer server, int maxInFlight) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new AdvancedApiDataFetcher(server.baseUrl).fetchAllDataConcurrently(maxInFlight);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    // Pages 1..PAGES hold one relationship each, later pages are empty. Closing releases every held page
+    // and waits for all handlers to return.
+    private static final class StubServer implements AutoCloseable {
+        private final boolean gated;
+        private final HttpServer server;
+        private final ExecutorService handlers = Executors.newCachedThreadPool();
+        private final String baseUrl;
+        private final Set<Integer> arrived = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> failingPages = ConcurrentHashMap.newKeySet();
+        private final ConcurrentHashMap<Integer, CountDownLatch> gates = new ConcurrentHashMap<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger maxOutstanding = new AtomicInteger();
+        private volatile boolean closing;
+
+        StubServer(boolean gated) throws IOException {
+            this.gated = gated;
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/data", this::servePage);
+            server.setExecutor(handlers);
+            server.start();
+            baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/data";
+        }
+
+        void release(int page) {
+            gate(page).countDown();
+        }
+
+        // Waits until pages 1..lastPage have all been requested
+        void awaitArrived(int lastPage) throws InterruptedException, TimeoutException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            for (int page = 1; page <= lastPage; page++) {
+                while (!arrived.contains(page)) {
+                    if (System.nanoTime() > deadline) {
+                        throw new TimeoutException("page " + page + " was never requested, arrived: " + arrived);
+                    }
+                    Thread.sleep(1);
+                }
+            }
+        }
+
+        private CountDownLatch gate(int page) {
+            return gates.computeIfAbsent(page, p -> new CountDownLatch(1));
+        }
+
+        private void servePage(HttpExchange exchange) throws IOException {
+            Matcher matcher = PAGE.matcher(exchange.getRequestURI().getQuery());
+            int page = matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+            int now = outstanding.incrementAndGet();
+            maxOutstanding.accumulateAndGet(now, Math::max);
+            arrived.add(page);
+            try {
+                // The gate exists before closing is read, so close() either sees it or this sees closing
+                CountDownLatch gate = gated ? gate(page) : null;
+                if (gate != null && !closing) {
+                    gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Before the response leaves, the client may only send its next request once it has this one
+                outstanding.decrementAndGet();
+            }
+
+            try (exchange) {
+                if (failingPages.contains(page)) {
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+                String body = page > PAGES ? "[]" : "[{\"relationships\":[{\"bdrId\":\"page-" + page + "\"}]}]";
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closing = true;
+            gates.values().forEach(CountDownLatch::countDown);
+            server.stop(0);
+            handlers.shutdown();
+            try {
+                assertTrue(handlers.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS), "stub handlers still running");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
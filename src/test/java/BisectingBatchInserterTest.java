@@ -0,0 +1,161 @@
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BisectingBatchInserterTest {
+
+    private static final String LONG_BDR_ID = "BDR-" + "9".repeat(200);
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bisect" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE live (bdr_id VARCHAR(10) NOT NULL, business_entity VARCHAR(10) NOT NULL, "
+                + "nature VARCHAR(10), status VARCHAR(10), golden_bdr_id VARCHAR(10), label VARCHAR(10), "
+                + "PRIMARY KEY (bdr_id, business_entity))",
+            "CREATE TABLE quarantine (load_id VARCHAR(64), payload CLOB, sql_state VARCHAR(5), message VARCHAR(1000))");
+    }
+
+    @AfterEach
+    void shutdown() throws SQLException {
+        execute("SHUTDOWN");
+    }
+
+    @Test
+    void tooLongValueIsQuarantinedAsReceived() throws Exception {
+        List<Relationships> rows = rows(40);
+        rows.get(23).setBdrId(LONG_BDR_ID);
+
+        BisectingBatchInserter.Load load = inserter().newLoad("2024-09-01");
+        BisectingBatchInserter.Result result = load.insert(rows);
+
+        assertEquals(39, result.getInserted().size());
+        assertEquals(1, result.getQuarantined().size());
+        assertEquals(39, count("SELECT COUNT(*) FROM live"));
+        assertEquals(1, load.getQuarantinedRows());
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT load_id, payload, sql_state FROM quarantine")) {
+            assertTrue(rs.next());
+            assertEquals("2024-09-01", rs.getString(1));
+            Relationships kept = MaestroCodec.shared().relationshipsReader().readValue(rs.getString(2));
+            assertEquals(LONG_BDR_ID, kept.getBdrId());
+            assertEquals("22001", rs.getString(3));
+        }
+    }
+
+    @Test
+    void duplicateKeysAreQuarantinedAndTheRestCommitted() throws SQLException {
+        List<Relationships> rows = rows(30);
+        rows.get(7).setBdrId("BDR3");
+        rows.get(29).setBdrId("BDR11");
+
+        BisectingBatchInserter.Result result = inserter().newLoad("2024-09-01").insert(rows);
+
+        assertEquals(28, result.getInserted().size());
+        assertEquals(2, result.getQuarantined().size());
+        assertEquals(28, count("SELECT COUNT(*) FROM live"));
+        assertEquals(2, count("SELECT COUNT(*) FROM quarantine WHERE sql_state LIKE '23%'"));
+    }
+
+    @Test
+    void cleanBatchIsNotRetried() throws SQLException {
+        BisectingBatchInserter.Load load = inserter().newLoad("2024-09-01");
+
+        assertEquals(50, load.insert(rows(50)).getInserted().size());
+        assertEquals(0, load.getRetriedBatches());
+        assertEquals(0, count("SELECT COUNT(*) FROM quarantine"));
+    }
+
+    @Test
+    void everyLoadCountsAndLogsItsOwnRows() throws Exception {
+        BisectingBatchInserter inserter = inserter();
+        List<Relationships> first = rows(40);
+        for (int i = 0; i < 15; i++) {
+            first.get(2 * i).setBdrId(LONG_BDR_ID);
+        }
+        // Other keys than the first load's rows, so only the two long ids fail
+        List<Relationships> second = rows(40);
+        second.forEach(relationship -> relationship.setBusinessEntity("BE2"));
+        second.get(5).setBdrId(LONG_BDR_ID);
+        second.get(31).setBdrId(LONG_BDR_ID);
+
+        String firstLog = stderrOf(() -> inserter.newLoad("2024-09-01").insert(first));
+        BisectingBatchInserter.Load load = inserter.newLoad("2024-09-02");
+        String secondLog = stderrOf(() -> load.insert(second));
+
+        // Past the first load's budget, the second still logs each of its rows
+        assertEquals(10, firstLog.lines().filter(line -> line.startsWith("Load 2024-09-01 quarantined")).count());
+        assertEquals(2, secondLog.lines().filter(line -> line.startsWith("Load 2024-09-02 quarantined")).count());
+        assertEquals(2, load.getQuarantinedRows());
+        assertEquals(15, count("SELECT COUNT(*) FROM quarantine WHERE load_id = '2024-09-01'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM quarantine WHERE load_id = '2024-09-02'"));
+    }
+
+    private BisectingBatchInserter inserter() {
+        return new BisectingBatchInserter(dataSource, "INSERT INTO live VALUES (?, ?, ?, ?, ?, ?)",
+            "INSERT INTO quarantine VALUES (?, ?, ?, ?)");
+    }
+
+    private interface Insert {
+        void run() throws SQLException;
+    }
+
+    private static String stderrOf(Insert insert) throws SQLException {
+        PrintStream stderr = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            insert.run();
+        } finally {
+            System.setErr(stderr);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static List<Relationships> rows(int count) {
+        List<Relationships> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId("BDR" + i);
+            relationship.setBusinessEntity("BE");
+            relationship.setNature("sub");
+            relationship.setStatus("active");
+            rows.add(relationship);
+        }
+        return rows;
+    }
+}
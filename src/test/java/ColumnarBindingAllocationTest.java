@@ -0,0 +1,122 @@
+import benchmarks.DiscardingPreparedStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Bytes allocated by the binding thread per insert batch, the figure JMH's GC profiler reports as
+// gc.alloc.rate.norm (it reads the same per-thread counter). The per-thread RelationshipColumns +
+// ColumnarBatchSetter path must not allocate per row once warm; the Object[][] path it replaced is the
+// reference. benchmarks.ColumnarBindingBenchmark measures the same two paths under JMH.
+class ColumnarBindingAllocationTest {
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final int WARM_UP_BATCHES = 50;
+    private static final int MEASURED_BATCHES = 20;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private List<Relationships> batch;
+    private DiscardingPreparedStatement statement;
+
+    @BeforeEach
+    void createStatement() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        statement = new DiscardingPreparedStatement();
+    }
+
+    @Test
+    void columnarBindingAllocatesNothingPerRow() throws SQLException {
+        batch = batch(BATCH_SIZE);
+        long bytesPerBatch = allocatedPerBatch(this::bindColumnar);
+        long rowArraysPerBatch = allocatedPerBatch(this::bindRowArrays);
+        System.out.println("Bytes allocated per batch of " + BATCH_SIZE + ": columnar " + bytesPerBatch
+            + ", Object[][] " + rowArraysPerBatch);
+
+        // Less than a byte per row: a fixed cost at most, nothing that grows with the batch
+        assertTrue(bytesPerBatch < BATCH_SIZE, "columnar binding allocated " + bytesPerBatch + " bytes per batch");
+        assertTrue(rowArraysPerBatch > 40L * BATCH_SIZE, "reference path allocated " + rowArraysPerBatch + " bytes per batch");
+    }
+
+    // The size the batch controller climbs to on a quiet database: the per-thread arrays must still be kept
+    @Test
+    void columnarBindingAtTheLargestAdaptiveBatchAllocatesNothingPerRow() throws SQLException {
+        int batchSize = AdaptiveBatchController.LARGEST_BATCH_SIZE;
+        batch = batch(batchSize);
+        long bytesPerBatch = allocatedPerBatch(this::bindColumnar);
+        System.out.println("Bytes allocated per columnar batch of " + batchSize + ": " + bytesPerBatch);
+
+        assertTrue(bytesPerBatch < batchSize, "columnar binding allocated " + bytesPerBatch + " bytes per batch");
+    }
+
+    private static List<Relationships> batch(int size) {
+        List<Relationships> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId("BDR" + i);
+            relationship.setBusinessEntity("BE" + i % 50);
+            relationship.setNature("subsidiary");
+            relationship.setStatus("active");
+            batch.add(relationship);
+        }
+        return batch;
+    }
+
+    private long allocatedPerBatch(BatchBinder binder) throws SQLException {
+        for (int i = 0; i < WARM_UP_BATCHES; i++) {
+            binder.bind();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_BATCHES; i++) {
+            binder.bind();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_BATCHES;
+    }
+
+    private void bindColumnar() throws SQLException {
+        RelationshipColumns columns = RelationshipColumns.forCurrentThread(false);
+        columns.addAll(batch);
+        ColumnarBatchSetter setter = ColumnarBatchSetter.forColumns(columns);
+        try {
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                setter.setValues(statement, i);
+            }
+        } finally {
+            setter.release();
+            columns.release();
+        }
+    }
+
+    // The replaced path: a fresh Object[batch][6] and one Object[] per row, bound through Arrays.asList
+    // as batchUpdate(sql, List<Object[]>) did
+    private void bindRowArrays() throws SQLException {
+        Object[][] rows = new Object[batch.size()][6];
+        int size = 0;
+        for (Relationships relationship : batch) {
+            rows[size++] = new Object[] {relationship.getBdrId(), relationship.getBusinessEntity(),
+                relationship.getNature(), relationship.getStatus(), null, null};
+        }
+        for (Object[] row : Arrays.asList(rows)) {
+            for (int column = 0; column < row.length; column++) {
+                if (row[column] == null) {
+                    statement.setNull(column + 1, Types.VARCHAR);
+                } else {
+                    statement.setObject(column + 1, row[column]);
+                }
+            }
+        }
+    }
+
+    private interface BatchBinder {
+        void bind() throws SQLException;
+    }
+}
@@ -0,0 +1,152 @@
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DatedSnapshotLoaderTest {
+
+    private static final String COLUMNS = "(bdr_id VARCHAR(64), business_entity VARCHAR(64), nature VARCHAR(64), "
+        + "status VARCHAR(64), golden_bdr_id VARCHAR(64), label VARCHAR(64), snapshot_date VARCHAR(10))";
+    private static final String REASON_COLUMNS = "(bdr_id VARCHAR(64), business_entity VARCHAR(64), ordinal INT, "
+        + "golden_bdr_id VARCHAR(64), label VARCHAR(16), snapshot_date VARCHAR(10))";
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:dated" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE live " + COLUMNS, "CREATE TABLE live_reasons " + REASON_COLUMNS);
+    }
+
+    @AfterEach
+    void shutdown() throws SQLException {
+        execute("SHUTDOWN");
+    }
+
+    @Test
+    void replacingADateKeepsOtherDatesWithTheSameKeys() throws SQLException {
+        loader().replace("2024-09-01", rows("first", 25));
+        loader().replace("2024-09-02", rows("first", 25));
+
+        loader().replace("2024-09-01", rows("second", 7));
+
+        assertEquals(List.of("2024-09-01:second:7", "2024-09-02:first:25"), liveDates());
+    }
+
+    @Test
+    void replacingADateTwiceLoadsItOnce() throws SQLException {
+        loader().replace("2024-09-01", rows("first", 25));
+        loader().replace("2024-09-01", rows("first", 25));
+
+        assertEquals(List.of("2024-09-01:first:25"), liveDates());
+    }
+
+    @Test
+    void failedReloadKeepsTheDateAsItWas() throws SQLException {
+        loader().replace("2024-09-01", rows("first", 25));
+        List<Relationships> broken = rows("second", 30);
+        // In the third batch, after the delete and two batches went through
+        broken.get(23).setNature("a nature much longer than the sixty-four characters the column accepts at most");
+
+        assertThrows(SQLException.class, () -> loader().replace("2024-09-01", broken));
+        assertEquals(List.of("2024-09-01:first:25"), liveDates());
+    }
+
+    @Test
+    void reasonsAreReplacedWithTheirDate() throws SQLException {
+        reasonsLoader().replace("2024-09-01", rows("first", 25));
+        reasonsLoader().replace("2024-09-02", rows("first", 25));
+
+        reasonsLoader().replace("2024-09-01", rows("second", 7));
+
+        assertEquals(14, count("SELECT COUNT(*) FROM live_reasons WHERE snapshot_date = '2024-09-01'"));
+        assertEquals(50, count("SELECT COUNT(*) FROM live_reasons WHERE snapshot_date = '2024-09-02'"));
+    }
+
+    @Test
+    void failedReasonKeepsParentsAndReasonsOfTheDate() throws SQLException {
+        reasonsLoader().replace("2024-09-01", rows("first", 25));
+        List<Relationships> broken = rows("second", 30);
+        broken.get(17).getReasons().get(1).setLabel("a label longer than the column");
+
+        assertThrows(SQLException.class, () -> reasonsLoader().replace("2024-09-01", broken));
+        assertEquals(List.of("2024-09-01:first:25"), liveDates());
+        assertEquals(50, count("SELECT COUNT(*) FROM live_reasons"));
+    }
+
+    // Small batches so every load spans several statements
+    private DatedSnapshotLoader loader() {
+        return new DatedSnapshotLoader(dataSource, "DELETE FROM live WHERE snapshot_date = ?",
+            "INSERT INTO live VALUES (?, ?, ?, ?, ?, ?, ?)", 10);
+    }
+
+    private DatedSnapshotLoader reasonsLoader() {
+        return new DatedSnapshotLoader(dataSource, "DELETE FROM live WHERE snapshot_date = ?",
+            "INSERT INTO live VALUES (?, ?, ?, ?, ?, ?, ?)", "DELETE FROM live_reasons WHERE snapshot_date = ?",
+            "INSERT INTO live_reasons VALUES (?, ?, ?, ?, ?, ?)", 10);
+    }
+
+    // "<snapshot date>:<status>:<rows>" for every date in the live table
+    private List<String> liveDates() throws SQLException {
+        List<String> dates = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT snapshot_date, status, COUNT(*) FROM live GROUP BY snapshot_date, status ORDER BY snapshot_date, status")) {
+            while (rs.next()) {
+                dates.add(rs.getString(1) + ":" + rs.getString(2) + ":" + rs.getInt(3));
+            }
+        }
+        return dates;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    // The same keys BDR0..BDR<count-1> for every load, the status tells the loads apart
+    private static List<Relationships> rows(String status, int count) {
+        List<Relationships> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId("BDR" + i);
+            relationship.setBusinessEntity("BE");
+            relationship.setNature("subsidiary");
+            relationship.setStatus(status);
+            List<Reasons> reasons = new ArrayList<>();
+            for (int ordinal = 0; ordinal < 2; ordinal++) {
+                Reasons reason = new Reasons();
+                reason.setGoldenBdrId("GOLD" + i);
+                reason.setLabel("label" + ordinal);
+                reasons.add(reason);
+            }
+            relationship.setReasons(reasons);
+            rows.add(relationship);
+        }
+        return rows;
+    }
+}
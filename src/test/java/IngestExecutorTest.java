@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Tasks are held on latches, so what runs and what waits is observed at known points
+class IngestExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    void lanesTakeTurns() throws Exception {
+        IngestExecutor executor = new IngestExecutor(1);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CompletableFuture<Void> blocker = executor.newLane("blocker").submit(() -> await(gate));
+
+            // A large load queued first, a small one behind it, both waiting for the only thread
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            IngestExecutor.Lane large = executor.newLane("large");
+            IngestExecutor.Lane small = executor.newLane("small");
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                String task = "L" + i;
+                futures.add(large.submit(() -> order.add(task)));
+            }
+            for (int i = 0; i < 3; i++) {
+                String task = "S" + i;
+                futures.add(small.submit(() -> order.add(task)));
+            }
+            gate.countDown();
+            blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(List.of("L0", "S0", "L1", "S1", "L2", "S2", "L3", "L4", "L5"), order);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void tasksBeyondTheConcurrencyQueueInsteadOfRunning() throws Exception {
+        IngestExecutor executor = new IngestExecutor(2);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch twoStarted = new CountDownLatch(2);
+            AtomicInteger started = new AtomicInteger();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.newLane("load").submit(() -> {
+                    started.incrementAndGet();
+                    threads.add(Thread.currentThread());
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    twoStarted.countDown();
+                    await(gate);
+                    running.decrementAndGet();
+                }));
+            }
+
+            assertTrue(twoStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            // Both threads are blocked: however long we wait, the other four tasks stay queued
+            Thread.sleep(100);
+            assertEquals(2, started.get());
+
+            gate.countDown();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertEquals(6, started.get());
+            assertEquals(2, maxRunning.get());
+            assertEquals(2, threads.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownRunsWhatIsQueuedAndRejectsNewTasks() throws Exception {
+        IngestExecutor executor = new IngestExecutor(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        IngestExecutor.Lane lane = executor.newLane("load");
+        lane.submit(() -> {
+            worker.set(Thread.currentThread());
+            await(gate);
+        });
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(lane.submit(ran::incrementAndGet));
+        }
+
+        executor.shutdown();
+        assertThrows(IllegalStateException.class, () -> lane.execute(ran::incrementAndGet));
+        gate.countDown();
+
+        CompletableFuture.allOf(queued.toArray(new CompletableFuture[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(5, ran.get());
+        worker.get().join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(worker.get().isAlive(), "worker still running after the queue drained");
+    }
+
+    @Test
+    void anErrorInATaskKeepsTheThread() throws Exception {
+        IngestExecutor executor = new IngestExecutor(1);
+        try {
+            IngestExecutor.Lane lane = executor.newLane("load");
+            lane.execute(() -> {
+                throw new StackOverflowError("deep mapping");
+            });
+            lane.execute(() -> {
+                throw new IllegalStateException("bad batch");
+            });
+
+            // Still served by the only thread
+            lane.submit(() -> { }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch gate) {
+        try {
+            assertTrue(gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "gate never opened");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
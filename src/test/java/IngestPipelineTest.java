@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestPipelineTest {
+
+    @Test
+    void reportsEveryUnitOnceAllOfItsRowsAreWritten() throws Exception {
+        Map<String, Long> loaded = new ConcurrentHashMap<>();
+        AtomicInteger written = new AtomicInteger();
+        IngestPipeline pipeline = new IngestPipeline(
+            unit -> unit.equals("skipped") ? null : payload(unit, Integer.parseInt(unit)),
+            (unit, batch) -> {
+                written.addAndGet(batch.size());
+                return batch.size();
+            },
+            (unit, rows, loadMillis) -> assertEquals(null, loaded.put(unit, rows), "reported twice: " + unit),
+            2, 2, 3, 2, 4, 10);
+
+        pipeline.run(List.of("25", "skipped", "10", "3", "0"));
+
+        assertEquals(Map.of("25", 25L, "10", 10L, "3", 3L, "0", 0L), loaded);
+        assertEquals(38, written.get());
+    }
+
+    @Test
+    void unitWithAFailedBatchIsNotReported() {
+        Map<String, Long> loaded = new ConcurrentHashMap<>();
+        IngestPipeline pipeline = new IngestPipeline(
+            unit -> payload(unit, 30),
+            (unit, batch) -> {
+                if (batch.get(0).getBusinessEntity().equals("broken")) {
+                    throw new IllegalStateException("insert failed");
+                }
+                return batch.size();
+            },
+            (unit, rows, loadMillis) -> loaded.put(unit, rows),
+            1, 1, 1, 1, 1, 10);
+
+        assertThrows(IllegalStateException.class, () -> pipeline.run(List.of("broken")));
+        assertFalse(loaded.containsKey("broken"));
+        assertTrue(loaded.isEmpty());
+    }
+
+    // Plain JSON payload of count relationships, businessEntity set to the unit
+    private static IngestPipeline.Payload payload(String unit, int count) {
+        StringBuilder json = new StringBuilder("{\"relationships\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append("{\"bdrId\":\"BDR").append(i)
+                .append("\",\"businessEntity\":\"").append(unit).append("\"}");
+        }
+        json.append("]}");
+        return new IngestPipeline.Payload(unit, json.toString().getBytes(StandardCharsets.UTF_8), null);
+    }
+}
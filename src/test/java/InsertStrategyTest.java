@@ -0,0 +1,124 @@
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Every strategy must leave the same rows in the table, whatever the batch size
+class InsertStrategyTest {
+
+    private static final String INSERT_SQL = "INSERT INTO internalratingsevents "
+        + "(bdr_id, business_entity, nature, status, golden_bdr_id, label) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ARRAY_INSERT_SQL = "INSERT INTO internalratingsevents "
+        + "(bdr_id, business_entity, nature, status, golden_bdr_id, label) SELECT * FROM UNNEST(?, ?, ?, ?, ?, ?)";
+    private static final int ROWS_PER_STATEMENT = 300;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTable() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:strategies" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE internalratingsevents (bdr_id VARCHAR(64), business_entity VARCHAR(64), "
+            + "nature VARCHAR(64), status VARCHAR(64), golden_bdr_id VARCHAR(64), label VARCHAR(64))");
+    }
+
+    @AfterEach
+    void shutdown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 299, 300, 301, 917})
+    void jdbcBatchWritesEveryRow(int rows) {
+        assertInserted(new JdbcBatchInsertStrategy(INSERT_SQL), relationships(rows));
+    }
+
+    // 917 = three full statements of 300 and a tail of 17 on its own statement
+    @ParameterizedTest
+    @ValueSource(ints = {1, 299, 300, 301, 917})
+    void multiRowValuesWritesFullChunksAndTheTail(int rows) {
+        assertInserted(new MultiRowValuesInsertStrategy(INSERT_SQL, ROWS_PER_STATEMENT), relationships(rows));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 300, 917})
+    void arrayBindingWritesEveryRowInOneStatement(int rows) {
+        assertInserted(new ArrayBindingInsertStrategy(ARRAY_INSERT_SQL, "VARCHAR"), relationships(rows));
+    }
+
+    @Test
+    void storeBackedBatchesBindTheSameRows() {
+        CompactRelationshipStore store = new CompactRelationshipStore();
+        List<Relationships> expected = relationships(917);
+        expected.forEach(store::add);
+
+        List<Relationships> batch = store.asList().subList(100, 917);
+        assertInserted(new JdbcBatchInsertStrategy(INSERT_SQL), batch);
+    }
+
+    @Test
+    void batchPastTheLargestAdaptiveSizeDoesNotLeaveGrownBuffersOnTheThread() {
+        assertInserted(new JdbcBatchInsertStrategy(INSERT_SQL), relationships(AdaptiveBatchController.LARGEST_BATCH_SIZE + 1));
+
+        assertEquals(1024, RelationshipColumns.forCurrentThread(false).capacity());
+    }
+
+    @Test
+    void nullValuesStayNull() {
+        Relationships relationship = new Relationships();
+        relationship.setBdrId("BDR1");
+        relationship.setBusinessEntity("BE");
+        List<Relationships> batch = List.of(relationship, relationship);
+
+        for (InsertStrategy strategy : List.of(new JdbcBatchInsertStrategy(INSERT_SQL),
+            new MultiRowValuesInsertStrategy(INSERT_SQL, ROWS_PER_STATEMENT),
+            new ArrayBindingInsertStrategy(ARRAY_INSERT_SQL, "VARCHAR"))) {
+            strategy.insert(jdbcTemplate, batch);
+        }
+
+        assertEquals(6, count("SELECT COUNT(*) FROM internalratingsevents WHERE nature IS NULL AND status IS NULL "
+            + "AND golden_bdr_id IS NULL AND label IS NULL"));
+    }
+
+    private void assertInserted(InsertStrategy strategy, List<Relationships> batch) {
+        assertEquals(batch.size(), strategy.insert(jdbcTemplate, batch));
+
+        List<String> expected = new ArrayList<>();
+        for (Relationships relationship : batch) {
+            expected.add(relationship.getBdrId() + "|" + relationship.getBusinessEntity() + "|"
+                + relationship.getNature() + "|" + relationship.getStatus() + "|null|null");
+        }
+        List<String> actual = jdbcTemplate.query(
+            "SELECT bdr_id, business_entity, nature, status, golden_bdr_id, label FROM internalratingsevents ORDER BY bdr_id",
+            (rs, i) -> rs.getString(1) + "|" + rs.getString(2) + "|" + rs.getString(3) + "|" + rs.getString(4)
+                + "|" + rs.getString(5) + "|" + rs.getString(6));
+        expected.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private static List<Relationships> relationships(int count) {
+        List<Relationships> relationships = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId(String.format("BDR%05d", i));
+            relationship.setBusinessEntity("BE" + i % 7);
+            relationship.setNature(i % 3 == 0 ? null : "subsidiary");
+            relationship.setStatus("active");
+            relationships.add(relationship);
+        }
+        return relationships;
+    }
+}
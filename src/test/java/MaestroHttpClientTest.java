@@ -0,0 +1,79 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MaestroHttpClientTest {
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void restTemplateCallsAreCountedButLeftOutOfTheLeaseAverage() throws IOException {
+        try (MaestroHttpClient client = new MaestroHttpClient(4, 2, 30, 60000)) {
+            RestTemplate restTemplate = new RestTemplate(client.requestFactory());
+            for (int i = 0; i < 3; i++) {
+                restTemplate.getForObject(url, String.class);
+            }
+            assertEquals(3, client.getRequestCount());
+            assertEquals(0, client.getLeaseSamples());
+
+            client.get(url);
+            client.get(url);
+            assertEquals(5, client.getRequestCount());
+            assertEquals(2, client.getLeaseSamples());
+        }
+    }
+
+    @Test
+    void readsLimitsFromConfiguration() throws IOException {
+        Map<String, String> settings = Map.of("maestro.http.max-total", "64", "maestro.http.max-per-route", " 16 ");
+        try (MaestroHttpClient client = MaestroHttpClient.fromConfiguration(settings::get)) {
+            assertEquals(64, client.getMaxTotal());
+            assertEquals(16, client.getMaxPerRoute());
+            assertEquals(200, client.get(url).getStatus());
+        }
+        try (MaestroHttpClient client = MaestroHttpClient.fromConfiguration(key -> null)) {
+            assertEquals(32, client.getMaxTotal());
+            assertEquals(8, client.getMaxPerRoute());
+        }
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+            () -> MaestroHttpClient.fromConfiguration(Map.of("maestro.http.max-total", "lots")::get));
+        assertThrows(IllegalArgumentException.class,
+            () -> MaestroHttpClient.fromConfiguration(Map.of("maestro.http.timeout-millis", "0")::get));
+    }
+}
@@ -0,0 +1,115 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The parallel parse must produce exactly what eventListReader produces on the whole payload. Most cases
+// use thresholds of zero bytes, so even small payloads are split down to one element per task.
+class ParallelEventParserTest {
+
+    private final ParallelEventParser parallel = new ParallelEventParser(4, 0, 0);
+    private final ObjectMapper writer = new ObjectMapper();
+
+    @Test
+    void matchesTheSequentialReaderOnPlainEvents() throws IOException {
+        assertParity("[" + event("1", "BE", "L1") + "," + event("2", "BE", "L2") + "," + event("3", "BE", "L3") + "]", 3);
+    }
+
+    @Test
+    void bracketsAndEscapedQuotesInsideStringsDoNotSplitElements() throws IOException {
+        assertParity("[" + event("a]},{\\\"x", "[{,}]", "ends with a backslash \\\\") + ","
+            + event("\\\"]", "\\\\\\\"", "\\u005d,") + "," + event("plain", "BE", "L") + "]", 3);
+    }
+
+    @Test
+    void nullElementsStayInPlace() throws IOException {
+        List<ResponseInternalRatingsEvent> events = assertParity(
+            "[" + event("1", "BE", "L") + ",null," + event("2", "BE", "L") + ", null ]", 4);
+
+        assertNotNull(events.get(0));
+        assertNull(events.get(1));
+        assertNull(events.get(3));
+    }
+
+    @Test
+    void emptyArraysGiveEmptyLists() throws IOException {
+        assertEquals(0, assertParity("[]", -1).size());
+        assertEquals(0, assertParity(" [ \n ] ", -1).size());
+    }
+
+    @Test
+    void whitespaceAroundTheArrayAndItsElementsIsIgnored() throws IOException {
+        assertParity(" \n[ " + event("1", "BE", "L") + " ,\n\t" + event("2", "BE", "L") + "\r\n] \n\t ", 2);
+    }
+
+    @Test
+    void aMalformedElementFailsBothWays() {
+        String json = "[" + event("1", "BE", "L") + ",{\"relationships\":[{\"bdrId\":}]}," + event("3", "BE", "L") + "]";
+        assertEquals(3, ParallelEventParser.elementBoundaries(bytes(json)).length / 2);
+
+        assertThrows(IOException.class, () -> MaestroCodec.shared().eventListReader().readValue(bytes(json)));
+        assertThrows(IOException.class, () -> parallel.parse(bytes(json)));
+    }
+
+    @Test
+    void aTruncatedArrayFailsBothWays() {
+        String json = "[" + event("1", "BE", "L") + "," + event("2", "BE", "L");
+        assertNull(ParallelEventParser.elementBoundaries(bytes(json)));
+
+        assertThrows(IOException.class, () -> MaestroCodec.shared().eventListReader().readValue(bytes(json)));
+        assertThrows(IOException.class, () -> parallel.parse(bytes(json)));
+    }
+
+    @Test
+    void aSingleEventRootIsReadAsAOneElementList() throws IOException {
+        assertEquals(1, assertParity(event("1", "BE", "L"), -1).size());
+    }
+
+    // Default thresholds: a payload past MIN_PARALLEL_BYTES is split into tasks of several elements
+    @Test
+    void matchesTheSequentialReaderPastTheDefaultThreshold() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < 3 * 1024 * 1024; i++) {
+            if (i > 0) {
+                json.append(i % 97 == 0 ? ", null," : ",");
+            }
+            json.append(event("BDR\\\"" + i + "]", "BE{" + i % 50, "label \\\\" + i));
+        }
+        json.append("]\n");
+        byte[] payload = bytes(json.toString());
+
+        assertEquals(writer.writeValueAsString(MaestroCodec.shared().eventListReader().readValue(payload)),
+            writer.writeValueAsString(new ParallelEventParser(4).parse(payload)));
+    }
+
+    // expectedElements: elements the boundary scan must find, or -1 where the sequential reader is used
+    private List<ResponseInternalRatingsEvent> assertParity(String json, int expectedElements) throws IOException {
+        byte[] payload = bytes(json);
+        int[] bounds = ParallelEventParser.elementBoundaries(payload);
+        if (expectedElements >= 0) {
+            assertEquals(expectedElements, bounds.length / 2);
+        }
+        List<ResponseInternalRatingsEvent> sequential = MaestroCodec.shared().eventListReader().readValue(payload);
+        List<ResponseInternalRatingsEvent> events = parallel.parse(payload);
+        assertEquals(writer.writeValueAsString(sequential), writer.writeValueAsString(events));
+        return events;
+    }
+
+    // Values are embedded as written, so they can carry JSON escapes
+    private static String event(String bdrId, String businessEntity, String label) {
+        return "{\"relationships\":[{\"bdrId\":\"" + bdrId + "\",\"businessEntity\":\"" + businessEntity
+            + "\",\"nature\":\"N\",\"status\":\"S\",\"reasons\":[{\"goldenBdrId\":\"G\",\"label\":\"" + label + "\"},"
+            + "{\"goldenBdrId\":null,\"label\":\"second\"}]}],\"reasons\":[{\"goldenBdrId\":\"top\",\"label\":\"" + label + "\"}]}";
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
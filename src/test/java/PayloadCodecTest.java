@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PayloadCodecTest {
+
+    private static final byte[] JSON = sampleJson(2000);
+
+    private final PayloadCodec codec = new PayloadCodec(2);
+
+    @Test
+    void decodesEveryCodecOnBothPaths() throws IOException {
+        assertDecodes(JSON, gzip(JSON), "gzip");
+        assertDecodes(JSON, deflate(JSON, false), "deflate");
+        assertDecodes(JSON, deflate(JSON, true), "deflate");
+        assertDecodes(JSON, deflate(JSON, true), null);
+        assertDecodes(JSON, JSON, null);
+    }
+
+    // A body labelled deflate that is really plain JSON passes through on the stream path, as decode does
+    @Test
+    void passesThroughJsonLabelledDeflate() throws IOException {
+        for (byte[] json : new byte[][] {
+                JSON,
+                sampleJson(20000),
+                "{\"relationships\":[]}".getBytes(StandardCharsets.UTF_8),
+                "[{\"relationships\":[{\"bdrId\":\"1\"}]}]".getBytes(StandardCharsets.UTF_8),
+                "  \n[]".getBytes(StandardCharsets.UTF_8)}) {
+            assertDecodes(json, json, "deflate");
+        }
+    }
+
+    // Outputs over one pooled chunk, decoded twice so the second run reuses the chunks of the first
+    @Test
+    void decodesOutputsSpanningSeveralChunks() throws IOException {
+        byte[] large = sampleJson(60000);
+        byte[] twoMembers = concat(gzip(JSON), gzip(large));
+        for (int run = 0; run < 2; run++) {
+            assertDecodes(large, gzip(large), "gzip");
+            assertDecodes(large, deflate(large, false), "deflate");
+            assertDecodes(large, deflate(large, true), "deflate");
+            assertArrayEquals(concat(JSON, large), codec.decode(twoMembers, "gzip"));
+        }
+    }
+
+    // ISIZE comes from the sender: a forged 2 GB trailer must not be allocated, a small one must not truncate
+    @Test
+    void untrustedSizeTrailerOnlyPresizes() throws IOException {
+        for (long isize : new long[] {0x7ffffff0L, 10, 0}) {
+            byte[] body = gzip(JSON);
+            writeIntLE(body, body.length - 4, isize);
+
+            assertThrows(ZipException.class, () -> codec.decode(body, "gzip"));
+        }
+    }
+
+    private void assertDecodes(byte[] expected, byte[] body, String contentEncoding) throws IOException {
+        assertArrayEquals(expected, codec.decode(body, contentEncoding));
+        // Stream without mark support, so the codec has to buffer the sniffed head itself
+        try (InputStream in = codec.decodingStream(new NoMarkInputStream(body), contentEncoding)) {
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+    }
+
+    private static byte[] sampleJson(int relationships) {
+        StringBuilder json = new StringBuilder("[{\"relationships\":[");
+        for (int i = 0; i < relationships; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"bdrId\":\"").append(i).append("\",\"businessEntity\":\"BE")
+                .append(i % 7).append("\",\"reasons\":[{\"label\":\"L").append(i % 3).append("\"}]}");
+        }
+        return json.append("]}]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static void writeIntLE(byte[] data, int pos, long value) {
+        for (int i = 0; i < 4; i++) {
+            data[pos + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean nowrap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+            deflate.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static class NoMarkInputStream extends ByteArrayInputStream {
+        NoMarkInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
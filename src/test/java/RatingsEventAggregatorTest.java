@@ -0,0 +1,85 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RatingsEventAggregatorTest {
+
+    private static final String SNAPSHOT =
+        "[{\"relationships\":[{\"bdrId\":\"1\",\"businessEntity\":\"BE1\",\"nature\":\"N\",\"status\":\"ACTIVE\","
+        + "\"reasons\":[{\"goldenBdrId\":\"10\",\"label\":\"L1\"},{\"goldenBdrId\":\"11\",\"label\":null}]},"
+        + "{\"bdrId\":\"2\",\"businessEntity\":null,\"reasons\":[]}]},"
+        + "{\"relationships\":null},"
+        + "{},"
+        + "{\"relationships\":[{\"bdrId\":\"3\",\"nature\":\"éè\",\"status\":\"INACTIVE\"}],\"unknown\":{\"a\":[1,2]}},"
+        + "{\"relationships\":[]},"
+        + "{\"relationships\":[{\"bdrId\":\"1\",\"businessEntity\":\"BE1\",\"nature\":\"N2\"}]}]";
+
+    private final ObjectMapper mapperObj = new ObjectMapper();
+
+    // The serialized merge must be byte-for-byte what the old serialize-then-reparse path produced
+    @Test
+    void mergeMatchesSerializeThenReparse() throws Exception {
+        List<ResponseInternalRatingsEvent> wrappers = MaestroCodec.shared().eventListReader().readValue(SNAPSHOT);
+
+        String merged = mapperObj.writeValueAsString(RatingsEventAggregator.merge(wrappers));
+
+        assertEquals(mapperObj.writeValueAsString(serializeThenReparse(wrappers)), merged);
+    }
+
+    @Test
+    void mergeOfNoWrappersMatchesToo() throws Exception {
+        assertEquals(mapperObj.writeValueAsString(serializeThenReparse(List.of())),
+            mapperObj.writeValueAsString(RatingsEventAggregator.merge(List.of())));
+    }
+
+    @Test
+    void mergeKeepsWrapperOrder() throws Exception {
+        List<ResponseInternalRatingsEvent> wrappers = MaestroCodec.shared().eventListReader().readValue(SNAPSHOT);
+
+        List<Relationships> merged = RatingsEventAggregator.merge(wrappers).getRelationships();
+
+        assertEquals(Arrays.asList("1", "2", "3", "1"), merged.stream().map(Relationships::getBdrId).toList());
+    }
+
+    @Test
+    void dedupRuleIsParsedFromTheProperty() {
+        assertNull(RelationshipDeduplicator.Rule.parse(""));
+        assertNull(RelationshipDeduplicator.Rule.parse(null));
+        assertEquals(RelationshipDeduplicator.Rule.KEEP_FIRST, RelationshipDeduplicator.Rule.parse("keep-first"));
+        assertEquals(RelationshipDeduplicator.Rule.KEEP_LAST, RelationshipDeduplicator.Rule.parse(" KEEP_LAST "));
+        assertThrows(IllegalArgumentException.class, () -> RelationshipDeduplicator.Rule.parse("keep-newest"));
+    }
+
+    @Test
+    void parsedRuleDropsRepeatedKeys() throws Exception {
+        List<ResponseInternalRatingsEvent> wrappers = MaestroCodec.shared().eventListReader().readValue(SNAPSHOT);
+
+        List<Relationships> merged = RatingsEventAggregator.merge(wrappers,
+            RelationshipDeduplicator.Rule.parse("keep-last")).getRelationships();
+
+        assertEquals(Arrays.asList("1", "2", "3"), merged.stream().map(Relationships::getBdrId).toList());
+        assertEquals("N2", merged.get(0).getNature());
+    }
+
+    // The code RatingsEventAggregator replaced in fetch.java and try5.java
+    private ResponseInternalRatingsEvent serializeThenReparse(List<ResponseInternalRatingsEvent> responseObjects) throws Exception {
+        List<Relationships> allRelationships = new ArrayList<>();
+        for (ResponseInternalRatingsEvent wrapper : responseObjects) {
+            if (wrapper.getRelationships() != null) {
+                allRelationships.addAll(wrapper.getRelationships());
+            }
+        }
+        ResponseInternalRatingsEvent transformedData = new ResponseInternalRatingsEvent();
+        transformedData.setRelationships(allRelationships);
+        String transformedJson = mapperObj.writeValueAsString(transformedData);
+        return mapperObj.readValue(transformedJson, new TypeReference<ResponseInternalRatingsEvent>() {});
+    }
+}
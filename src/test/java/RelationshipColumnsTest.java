@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RelationshipColumnsTest {
+
+    @Test
+    void releaseKeepsArraysOfAnOrdinaryBatch() {
+        RelationshipColumns columns = new RelationshipColumns(false);
+        fill(columns, 10_000);
+        int capacity = columns.capacity();
+
+        columns.release();
+
+        assertEquals(0, columns.size());
+        assertEquals(capacity, columns.capacity());
+        fill(columns, 1);
+        assertNull(columns.nature(0));
+    }
+
+    @Test
+    void releaseKeepsArraysOfTheLargestAdaptiveBatch() {
+        RelationshipColumns columns = new RelationshipColumns(false);
+        fill(columns, AdaptiveBatchController.LARGEST_BATCH_SIZE);
+        int capacity = columns.capacity();
+
+        columns.release();
+
+        assertEquals(AdaptiveBatchController.LARGEST_BATCH_SIZE, capacity);
+        assertEquals(capacity, columns.capacity());
+    }
+
+    @Test
+    void releaseGivesBackArraysGrownPastTheLargestAdaptiveBatch() {
+        RelationshipColumns columns = new RelationshipColumns(false);
+        fill(columns, AdaptiveBatchController.LARGEST_BATCH_SIZE + 1);
+
+        columns.release();
+
+        assertEquals(0, columns.size());
+        assertEquals(1024, columns.capacity());
+    }
+
+    @Test
+    void perThreadBufferIsReusedAcrossBatches() {
+        RelationshipColumns columns = RelationshipColumns.forCurrentThread(false);
+        fill(columns, 10);
+        columns.release();
+
+        RelationshipColumns next = RelationshipColumns.forCurrentThread(false);
+        assertSame(columns, next);
+        assertEquals(0, next.size());
+    }
+
+    private static void fill(RelationshipColumns columns, int rows) {
+        for (int i = 0; i < rows; i++) {
+            columns.add("BDR" + i, "BE", null, "active", null, null);
+        }
+    }
+}
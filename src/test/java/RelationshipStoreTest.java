@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelationshipStoreTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void compactStoreCopiesRanges() {
+        assertCopiesRanges(new CompactRelationshipStore());
+    }
+
+    @Test
+    void spilledStoreCopiesRanges() throws IOException {
+        try (RelationshipStore store = new MappedSpillRelationshipStore(spillDirectory)) {
+            assertCopiesRanges(store);
+        }
+    }
+
+    // 512-byte segments hold a handful of rows each, so ranges and index strides cross many boundaries
+    @Test
+    void spilledStoreReadsRowsAcrossSegments() throws IOException {
+        try (MappedSpillRelationshipStore store = new MappedSpillRelationshipStore(spillDirectory, 512)) {
+            List<Relationships> rows = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                rows.add(relationship("BDR" + i, "BE" + i % 3, i % 2 == 0 ? "subsidiary" : null, "active",
+                    i % 5 == 0 ? null : reasons(i % 4)));
+            }
+            rows.forEach(store::add);
+            assertTrue(store.getMappedBytes() > 10 * 512, store.toString());
+
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(describe(rows.get(i)), describe(store.get(i)), "row " + i);
+            }
+            for (int[] range : List.of(new int[] {0, 300}, new int[] {63, 130}, new int[] {127, 129}, new int[] {299, 300})) {
+                for (boolean firstReason : new boolean[] {false, true}) {
+                    RelationshipColumns columns = new RelationshipColumns(firstReason);
+                    store.copyTo(range[0], range[1], columns);
+                    assertEquals(range[1] - range[0], columns.size());
+                    for (int row = range[0]; row < range[1]; row++) {
+                        assertEquals(describe(rows.get(row), firstReason), describe(columns, row - range[0]),
+                            "row " + row + " of " + range[0] + ".." + range[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void compactStoreRoundTripsNullsAndReasons() {
+        assertRoundTrips(new CompactRelationshipStore());
+    }
+
+    @Test
+    void spilledStoreRoundTripsNullsAndReasons() throws IOException {
+        try (RelationshipStore store = new MappedSpillRelationshipStore(spillDirectory, 128)) {
+            assertRoundTrips(store);
+        }
+    }
+
+    private static void assertRoundTrips(RelationshipStore store) {
+        List<Relationships> rows = List.of(
+            relationship(null, null, null, null, null),
+            relationship("BDR1", "BE", "subsidiary", "active", null),
+            relationship("BDR2", "BE", "subsidiary", "active", List.of()),
+            relationship("BDR3", "BE", null, "inactive", reasons(3)),
+            relationship("BDR\u00e9\u4e2d", "", "", "active",
+                Arrays.asList(reason(null, null), reason("GOLD", null), reason(null, "label"))));
+        rows.forEach(store::add);
+
+        assertEquals(rows.size(), store.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(describe(rows.get(i)), describe(store.get(i)), "row " + i);
+        }
+    }
+
+    private static void assertCopiesRanges(RelationshipStore store) {
+        RelationshipColumns columns = new RelationshipColumns(false);
+        // Empty ranges, including one on an empty store and one at the end
+        store.copyTo(0, 0, columns);
+        for (int i = 0; i < 5; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId("BDR" + i);
+            relationship.setBusinessEntity("BE");
+            store.add(relationship);
+        }
+        store.copyTo(2, 2, columns);
+        store.copyTo(5, 5, columns);
+        assertEquals(0, columns.size());
+
+        store.copyTo(1, 5, columns);
+        assertEquals(4, columns.size());
+        assertEquals("BDR1", columns.bdrId(0));
+        assertEquals("BDR4", columns.bdrId(3));
+
+        for (int[] range : List.of(new int[] {-1, 2}, new int[] {3, 2}, new int[] {0, 6}, new int[] {6, 6})) {
+            assertThrows(IndexOutOfBoundsException.class, () -> store.copyTo(range[0], range[1], columns),
+                range[0] + ".." + range[1]);
+        }
+    }
+
+    private static Relationships relationship(String bdrId, String businessEntity, String nature, String status,
+                                              List<Reasons> reasons) {
+        Relationships relationship = new Relationships();
+        relationship.setBdrId(bdrId);
+        relationship.setBusinessEntity(businessEntity);
+        relationship.setNature(nature);
+        relationship.setStatus(status);
+        relationship.setReasons(reasons);
+        return relationship;
+    }
+
+    private static List<Reasons> reasons(int count) {
+        List<Reasons> reasons = new ArrayList<>();
+        for (int r = 0; r < count; r++) {
+            reasons.add(reason("GOLD" + r, "label" + r));
+        }
+        return reasons;
+    }
+
+    private static Reasons reason(String goldenBdrId, String label) {
+        Reasons reason = new Reasons();
+        reason.setGoldenBdrId(goldenBdrId);
+        reason.setLabel(label);
+        return reason;
+    }
+
+    // Every field, with a null reason list told apart from an empty one
+    private static String describe(Relationships relationship) {
+        StringBuilder description = new StringBuilder().append(relationship.getBdrId()).append('|')
+            .append(relationship.getBusinessEntity()).append('|').append(relationship.getNature()).append('|')
+            .append(relationship.getStatus()).append('|');
+        if (relationship.getReasons() == null) {
+            return description.append("no reasons").toString();
+        }
+        for (Reasons reason : relationship.getReasons()) {
+            description.append('[').append(reason.getGoldenBdrId()).append(',').append(reason.getLabel()).append(']');
+        }
+        return description.toString();
+    }
+
+    // What copyTo is expected to put in the columns for this row
+    private static String describe(Relationships relationship, boolean firstReason) {
+        List<Reasons> reasons = relationship.getReasons();
+        Reasons first = firstReason && reasons != null && !reasons.isEmpty() ? reasons.get(0) : null;
+        return relationship.getBdrId() + "|" + relationship.getBusinessEntity() + "|" + relationship.getNature() + "|"
+            + relationship.getStatus() + "|" + (first == null ? null : first.getGoldenBdrId()) + "|"
+            + (first == null ? null : first.getLabel());
+    }
+
+    private static String describe(RelationshipColumns columns, int row) {
+        return columns.bdrId(row) + "|" + columns.businessEntity(row) + "|" + columns.nature(row) + "|"
+            + columns.status(row) + "|" + columns.goldenBdrId(row) + "|" + columns.label(row);
+    }
+}
@@ -0,0 +1,87 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The token-stream deserializer must bind exactly what databind binds with the mapper settings used for Maestro
+class ResponseInternalRatingsEventDeserializerTest {
+
+    private static final TypeReference<List<ResponseInternalRatingsEvent>> EVENT_LIST = new TypeReference<>() {};
+
+    private final ObjectMapper databind = maestroMapper();
+    private final ObjectMapper streaming = maestroMapper();
+    private final ObjectMapper writer = new ObjectMapper();
+
+    ResponseInternalRatingsEventDeserializerTest() {
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(ResponseInternalRatingsEvent.class, new ResponseInternalRatingsEventDeserializer());
+        streaming.registerModule(module);
+    }
+
+    @Test
+    void matchesDatabindOnFullRecords() throws Exception {
+        assertParity("[{\"relationships\":[{\"bdrId\":\"1\",\"businessEntity\":\"BE\",\"nature\":\"N\",\"status\":\"S\","
+            + "\"reasons\":[{\"goldenBdrId\":\"10\",\"label\":\"L1\"},{\"goldenBdrId\":\"11\",\"label\":\"L2\"}]}],"
+            + "\"reasons\":[{\"goldenBdrId\":\"20\",\"label\":\"top\"}]}]");
+    }
+
+    @Test
+    void matchesDatabindOnUnknownFields() throws Exception {
+        assertParity("[{\"id\":7,\"meta\":{\"relationships\":[{\"bdrId\":\"x\"}]},\"tags\":[[1],{\"a\":null}],"
+            + "\"relationships\":[{\"extra\":{\"bdrId\":\"nested\"},\"bdrId\":\"1\",\"more\":[1,{\"b\":2}],"
+            + "\"reasons\":[{\"goldenBdrId\":\"10\",\"weight\":0.5,\"sub\":{\"label\":\"no\"},\"label\":\"L\"}]}]}]");
+    }
+
+    @Test
+    void matchesDatabindOnNullsAndMissingFields() throws Exception {
+        assertParity("[{\"relationships\":[{\"bdrId\":null,\"businessEntity\":null,\"nature\":null,\"status\":null,"
+            + "\"reasons\":null},{\"bdrId\":\"2\"},{\"bdrId\":\"3\",\"reasons\":[]},"
+            + "{\"bdrId\":\"4\",\"reasons\":[{\"goldenBdrId\":null,\"label\":null},{}]}]}]");
+    }
+
+    @Test
+    void matchesDatabindOnSingleValuesAndScalars() throws Exception {
+        assertParity("{\"relationships\":{\"bdrId\":123,\"businessEntity\":true,\"nature\":1.5,"
+            + "\"reasons\":{\"goldenBdrId\":42,\"label\":\"only\"}},\"reasons\":{\"label\":\"one\"}}");
+    }
+
+    // The only intended difference: an event without (or with null) lists gets empty ones instead of null
+    @Test
+    void eventLevelListsDefaultToEmpty() throws Exception {
+        List<ResponseInternalRatingsEvent> events = streaming.readValue("[{},{\"relationships\":null,\"reasons\":null}]", EVENT_LIST);
+
+        for (ResponseInternalRatingsEvent event : events) {
+            assertEquals(List.of(), event.getRelationships());
+            assertEquals(List.of(), event.getReasons());
+        }
+        assertNull(databind.readValue("{}", ResponseInternalRatingsEvent.class).getRelationships());
+    }
+
+    private void assertParity(String json) throws Exception {
+        List<ResponseInternalRatingsEvent> expected = databind.readValue(json, EVENT_LIST);
+        List<ResponseInternalRatingsEvent> actual = streaming.readValue(json, EVENT_LIST);
+        for (ResponseInternalRatingsEvent event : expected) {
+            if (event.getRelationships() == null) {
+                event.setRelationships(new ArrayList<>());
+            }
+            if (event.getReasons() == null) {
+                event.setReasons(new ArrayList<>());
+            }
+        }
+        assertEquals(writer.writeValueAsString(expected), writer.writeValueAsString(actual));
+    }
+
+    private static ObjectMapper maestroMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+}
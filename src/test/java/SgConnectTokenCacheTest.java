@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SgConnectTokenCacheTest {
+
+    @Test
+    void servesTheCachedTokenWithoutRefetching() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        String token = jwt(System.currentTimeMillis() / 1000 + 3600);
+        try (SgConnectTokenCache cache = new SgConnectTokenCache(() -> {
+            calls.incrementAndGet();
+            return token;
+        })) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(token, cache.getToken());
+            }
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    void rejectsAnAlreadyExpiredTokenWithoutSpinning() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try (SgConnectTokenCache cache = new SgConnectTokenCache(() -> {
+            calls.incrementAndGet();
+            return jwt(System.currentTimeMillis() / 1000 - 1);
+        })) {
+            assertThrows(IOException.class, cache::getToken);
+            Thread.sleep(300);
+            assertEquals(1, calls.get());
+        }
+    }
+
+    // Usable for well under the retry delay: the next refresh still waits for the floor
+    @Test
+    void shortLivedTokensAreNotRefreshedInALoop() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try (SgConnectTokenCache cache = new SgConnectTokenCache(() -> {
+            calls.incrementAndGet();
+            // Expires just past the 10 s skew, so it stays usable for at most one second
+            return jwt((System.currentTimeMillis() + 10_000) / 1000 + 1);
+        })) {
+            cache.getToken();
+            Thread.sleep(1500);
+            assertEquals(1, calls.get());
+        }
+    }
+
+    private static String jwt(long expSeconds) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+            + encoder.encodeToString(("{\"exp\":" + expSeconds + "}").getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+}
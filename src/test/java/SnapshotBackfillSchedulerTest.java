@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotBackfillSchedulerTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 9, 8);
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger checkpoints = new AtomicInteger();
+
+    @Test
+    void budgetBoundsConcurrentLoads() throws Exception {
+        // One connection per load in a budget of 3: never more than 3 loads at once
+        RecordingDao dao = new RecordingDao();
+        SnapshotBackfillScheduler scheduler = new SnapshotBackfillScheduler(
+            date -> CompletableFuture.completedFuture(snapshot(date)), dao, tempCheckpoint(), null, 1000, 3, 8);
+
+        Map<LocalDate, SnapshotBackfillScheduler.DateStats> stats = scheduler.run(FROM, TO);
+
+        assertEquals(8, stats.size());
+        assertTrue(stats.values().stream().allMatch(SnapshotBackfillScheduler.DateStats::isSucceeded));
+        assertEquals(8, dao.replaced.size());
+        assertEquals(3, dao.maxConcurrentLoads.get());
+    }
+
+    @Test
+    void budgetBelowOneLoadStillRunsLoadsOneAtATime() throws Exception {
+        RecordingDao dao = new RecordingDao();
+        SnapshotBackfillScheduler scheduler = new SnapshotBackfillScheduler(
+            date -> CompletableFuture.completedFuture(snapshot(date)), dao, tempCheckpoint(), null, 1000, 0, 8);
+
+        scheduler.run(FROM, TO);
+
+        assertEquals(8, dao.replaced.size());
+        assertEquals(1, dao.maxConcurrentLoads.get());
+    }
+
+    @Test
+    void everyUnfinishedDateIsReplacedUnderItsOwnDate() throws Exception {
+        Path checkpoint = tempCheckpoint();
+        // 09-01 finished; 09-02 started under an earlier version and crashed before it was confirmed
+        Files.write(checkpoint, List.of("2024-09-01 started", "2024-09-01", "2024-09-02 started"), StandardCharsets.UTF_8);
+        RecordingDao dao = new RecordingDao();
+        SnapshotBackfillScheduler scheduler = new SnapshotBackfillScheduler(
+            date -> CompletableFuture.completedFuture(snapshot(date)), dao, checkpoint, null, 1000, 8, 8);
+
+        scheduler.run(FROM, LocalDate.of(2024, 9, 3));
+
+        assertEquals(List.of("2024-09-02=2024-09-02", "2024-09-03=2024-09-03"), sorted(dao.replaced));
+        List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+        assertTrue(lines.contains("2024-09-02") && lines.contains("2024-09-03"));
+    }
+
+    @Test
+    void loadThatFailsIsReplacedOnTheNextRun() throws Exception {
+        Path checkpoint = tempCheckpoint();
+        RecordingDao failing = new RecordingDao() {
+            @Override
+            public void replaceInternalRatingEventsApi(String snapshotDate, ResponseInternalRatingsEvent event) {
+                throw new IllegalStateException("connection lost, transaction rolled back");
+            }
+        };
+        Map<LocalDate, SnapshotBackfillScheduler.DateStats> failed = new SnapshotBackfillScheduler(
+            date -> CompletableFuture.completedFuture(snapshot(date)), failing, checkpoint, null, 1000, 8, 8).run(FROM, FROM);
+        assertFalse(failed.get(FROM).isSucceeded());
+
+        RecordingDao dao = new RecordingDao();
+        new SnapshotBackfillScheduler(date -> CompletableFuture.completedFuture(snapshot(date)),
+            dao, checkpoint, null, 1000, 8, 8).run(FROM, FROM);
+
+        assertEquals(List.of("2024-09-01=2024-09-01"), dao.replaced);
+        assertTrue(dao.saved.isEmpty());
+    }
+
+    private Path tempCheckpoint() {
+        return tempDir.resolve("backfill-" + checkpoints.incrementAndGet() + ".checkpoint");
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static ResponseInternalRatingsEvent snapshot(LocalDate date) {
+        Relationships relationship = new Relationships();
+        relationship.setBdrId(date.toString());
+        relationship.setBusinessEntity("BE");
+        ResponseInternalRatingsEvent event = new ResponseInternalRatingsEvent();
+        event.setRelationships(List.of(relationship));
+        return event;
+    }
+
+    // Records each load as "<snapshot date>=<first bdrId>"
+    private static class RecordingDao implements DbeClientDao {
+        final List<String> saved = Collections.synchronizedList(new ArrayList<>());
+        final List<String> replaced = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger concurrentLoads = new AtomicInteger();
+        final AtomicInteger maxConcurrentLoads = new AtomicInteger();
+
+        @Override
+        public void saveInternalRatingEventsApi(ResponseInternalRatingsEvent event) {
+            load(null, event, saved);
+        }
+
+        @Override
+        public void replaceInternalRatingEventsApi(String snapshotDate, ResponseInternalRatingsEvent event) {
+            load(snapshotDate, event, replaced);
+        }
+
+        private void load(String snapshotDate, ResponseInternalRatingsEvent event, List<String> into) {
+            maxConcurrentLoads.accumulateAndGet(concurrentLoads.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentLoads.decrementAndGet();
+            }
+            into.add(snapshotDate + "=" + event.getRelationships().get(0).getBdrId());
+        }
+    }
+}
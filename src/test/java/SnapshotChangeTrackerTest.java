@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotChangeTrackerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void unchangedMarkerIsDistinctFromAnEmptySnapshot() {
+        ResponseInternalRatingsEvent empty = new ResponseInternalRatingsEvent();
+        empty.setRelationships(new ArrayList<>());
+
+        assertTrue(SnapshotChangeTracker.isUnchanged(SnapshotChangeTracker.UNCHANGED));
+        assertFalse(SnapshotChangeTracker.isUnchanged(empty));
+        assertFalse(SnapshotChangeTracker.isUnchanged(null));
+    }
+
+    @Test
+    void unchangedMarkerCannotBeFilledIn() {
+        ResponseInternalRatingsEvent marker = SnapshotChangeTracker.UNCHANGED;
+
+        assertThrows(UnsupportedOperationException.class, () -> marker.setRelationships(new ArrayList<>()));
+        assertThrows(UnsupportedOperationException.class, () -> marker.setReasons(new ArrayList<>()));
+        assertThrows(UnsupportedOperationException.class, () -> marker.getRelationships().add(new Relationships()));
+        assertEquals(0, marker.getRelationships().size());
+    }
+
+    @Test
+    void payloadOnlyCountsAsUnchangedOnceItsLoadWasConfirmed() {
+        Path stateFile = tempDir.resolve("snapshots.properties");
+        byte[] payload = "{\"relationships\":[]}".getBytes(StandardCharsets.UTF_8);
+        SnapshotChangeTracker tracker = new SnapshotChangeTracker(stateFile);
+
+        assertFalse(tracker.isUnchanged("2024-09-11", payload, "\"v1\"", null));
+        assertFalse(tracker.isUnchanged("2024-09-11", payload, "\"v1\"", null));
+        tracker.markIngested("2024-09-11", 100);
+
+        SnapshotChangeTracker restarted = new SnapshotChangeTracker(stateFile);
+        assertTrue(restarted.isUnchanged("2024-09-11", payload, "\"v1\"", null));
+        assertEquals("\"v1\"", restarted.conditionalHeaders("2024-09-11").get("If-None-Match"));
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFingerprintIndexTest {
+
+    @Test
+    void classifiesInsertsUpdatesAndDeletes() {
+        SnapshotFingerprintIndex previous = SnapshotFingerprintIndex.of(List.of(
+            row("1", "A", "active"), row("2", "A", "active"), row("3", "A", "active")));
+
+        Relationships changed = row("2", "A", "closed");
+        Relationships added = row("4", "A", "active");
+        SnapshotFingerprintIndex.Delta delta = previous.diff(List.of(row("1", "A", "active"), changed, added));
+
+        assertEquals(List.of(added), delta.getInserts());
+        assertEquals(List.of(changed), delta.getUpdates());
+        assertEquals(1, delta.getDeletes().size());
+        assertEquals("3", delta.getDeletes().get(0)[0]);
+    }
+
+    @Test
+    void newKeyRepeatedInOneSnapshotIsInsertedOnceWithItsLastCopy() {
+        SnapshotFingerprintIndex previous = SnapshotFingerprintIndex.of(List.of(row("1", "A", "active")));
+
+        Relationships last = row("2", "A", "closed");
+        SnapshotFingerprintIndex.Delta delta = previous.diff(List.of(
+            row("1", "A", "active"), row("2", "A", "active"), last));
+
+        assertEquals(1, delta.getInserts().size());
+        assertSame(last, delta.getInserts().get(0));
+        assertTrue(delta.getUpdates().isEmpty());
+        assertTrue(delta.getDeletes().isEmpty());
+        assertIndexMatches(delta, List.of(row("1", "A", "active"), last));
+    }
+
+    @Test
+    void existingKeyRepeatedInOneSnapshotIsUpdatedOnceWithItsLastCopy() {
+        SnapshotFingerprintIndex previous = SnapshotFingerprintIndex.of(List.of(row("1", "A", "active")));
+
+        Relationships last = row("1", "A", "closed");
+        SnapshotFingerprintIndex.Delta delta = previous.diff(List.of(
+            row("1", "A", "pending"), row("1", "A", "active"), last));
+
+        assertTrue(delta.getInserts().isEmpty());
+        assertEquals(1, delta.getUpdates().size());
+        assertSame(last, delta.getUpdates().get(0));
+        assertIndexMatches(delta, List.of(last));
+    }
+
+    @Test
+    void repeatedKeyEndingOnTheStoredContentIsNotUpdated() {
+        SnapshotFingerprintIndex previous = SnapshotFingerprintIndex.of(List.of(row("1", "A", "active")));
+
+        SnapshotFingerprintIndex.Delta delta = previous.diff(List.of(row("1", "A", "closed"), row("1", "A", "active")));
+
+        assertEquals(0, delta.getChangeCount());
+        assertIndexMatches(delta, List.of(row("1", "A", "active")));
+    }
+
+    // Diffing the final state of the table against the next index must find nothing to do
+    private static void assertIndexMatches(SnapshotFingerprintIndex.Delta delta, List<Relationships> table) {
+        assertEquals(table.size(), delta.getNextIndex().size());
+        assertEquals(0, delta.getNextIndex().diff(table).getChangeCount());
+    }
+
+    private static Relationships row(String bdrId, String businessEntity, String status) {
+        Relationships relationship = new Relationships();
+        relationship.setBdrId(bdrId);
+        relationship.setBusinessEntity(businessEntity);
+        relationship.setNature("subsidiary");
+        relationship.setStatus(status);
+        return relationship;
+    }
+}
@@ -0,0 +1,182 @@
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagingBulkLoaderTest {
+
+    private static final String COLUMNS = "(bdr_id VARCHAR(64), business_entity VARCHAR(64), nature VARCHAR(64), "
+        + "status VARCHAR(64), golden_bdr_id VARCHAR(64), label VARCHAR(64))";
+    private static final String REASON_COLUMNS = "(bdr_id VARCHAR(64), business_entity VARCHAR(64), ordinal INT, "
+        + "golden_bdr_id VARCHAR(64), label VARCHAR(16))";
+
+    private JdbcDataSource dataSource;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:staging" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE live " + COLUMNS, "CREATE TABLE staging " + COLUMNS,
+            "ALTER TABLE live ALTER COLUMN bdr_id SET NOT NULL", "ALTER TABLE live ALTER COLUMN business_entity SET NOT NULL",
+            "ALTER TABLE live ADD PRIMARY KEY (bdr_id, business_entity)",
+            "CREATE TABLE live_reasons " + REASON_COLUMNS, "CREATE TABLE staging_reasons " + REASON_COLUMNS,
+            "ALTER TABLE live_reasons ADD FOREIGN KEY (bdr_id, business_entity) REFERENCES live (bdr_id, business_entity)");
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void shutdown() throws SQLException {
+        executor.shutdownNow();
+        execute("SHUTDOWN");
+    }
+
+    @Test
+    void publishesTheStagedSnapshot() throws SQLException {
+        loader(false).load(rows("A", 25));
+        loader(false).load(rows("B", 7));
+
+        assertEquals(List.of("B:7"), liveSnapshots());
+    }
+
+    @Test
+    void emptySnapshotIsRefusedAndTheLiveTableKept() throws SQLException {
+        loader(false).load(rows("A", 25));
+
+        assertThrows(IllegalStateException.class, () -> loader(false).load(List.of()));
+        assertEquals(List.of("A:25"), liveSnapshots());
+    }
+
+    @Test
+    void emptySnapshotIsPublishedWhenAllowed() throws SQLException {
+        loader(false).load(rows("A", 25));
+
+        assertEquals(0, loader(true).load(List.of()));
+        assertEquals(List.of(), liveSnapshots());
+    }
+
+    @Test
+    void concurrentLoadsOfOneStagingTableDoNotMix() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 5; round++) {
+                List<Future<Integer>> loads = new ArrayList<>();
+                for (String snapshot : List.of("A", "B", "C", "D")) {
+                    List<Relationships> rows = rows(snapshot, 400);
+                    loads.add(callers.submit(() -> loader(false).load(rows)));
+                }
+                for (Future<Integer> load : loads) {
+                    assertEquals(400, load.get());
+                }
+                List<String> live = liveSnapshots();
+                assertEquals(1, live.size(), "live table mixes snapshots: " + live);
+                assertTrue(live.get(0).endsWith(":400"), live.get(0));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void reasonsArePublishedWithTheirParents() throws SQLException {
+        reasonsLoader().load(rows("A", 25));
+        reasonsLoader().load(rows("B", 7));
+
+        assertEquals(List.of("B:7"), liveSnapshots());
+        assertEquals(14, count("SELECT COUNT(*) FROM live_reasons WHERE business_entity = 'B'"));
+        assertEquals(14, count("SELECT COUNT(*) FROM live_reasons"));
+    }
+
+    @Test
+    void failedReasonLeavesParentsAndReasonsUnchanged() throws SQLException {
+        reasonsLoader().load(rows("A", 25));
+        List<Relationships> broken = rows("B", 30);
+        broken.get(17).getReasons().get(1).setLabel("a label longer than the column");
+
+        assertThrows(SQLException.class, () -> reasonsLoader().load(broken));
+        assertEquals(List.of("A:25"), liveSnapshots());
+        assertEquals(50, count("SELECT COUNT(*) FROM live_reasons WHERE business_entity = 'A'"));
+    }
+
+    private StagingBulkLoader reasonsLoader() {
+        return new StagingBulkLoader(dataSource, "TRUNCATE TABLE staging", "INSERT INTO staging VALUES (?, ?, ?, ?, ?, ?)",
+            "TRUNCATE TABLE staging_reasons", "INSERT INTO staging_reasons VALUES (?, ?, ?, ?, ?)",
+            List.of("DELETE FROM live_reasons", "DELETE FROM live", "INSERT INTO live SELECT * FROM staging",
+                "INSERT INTO live_reasons SELECT * FROM staging_reasons"),
+            executor, 4, 10, false);
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Small batches so every load spreads over several partitions and statements
+    private StagingBulkLoader loader(boolean allowEmpty) {
+        return new StagingBulkLoader(dataSource, "TRUNCATE TABLE staging",
+            "INSERT INTO staging VALUES (?, ?, ?, ?, ?, ?)",
+            List.of("DELETE FROM live", "INSERT INTO live SELECT * FROM staging"),
+            executor, 4, 10, allowEmpty);
+    }
+
+    // "<snapshot>:<rows>" for every snapshot present in the live table
+    private List<String> liveSnapshots() throws SQLException {
+        List<String> snapshots = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT business_entity, COUNT(*) FROM live GROUP BY business_entity ORDER BY business_entity")) {
+            while (rs.next()) {
+                snapshots.add(rs.getString(1) + ":" + rs.getInt(2));
+            }
+        }
+        return snapshots;
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static List<Relationships> rows(String snapshot, int count) {
+        List<Relationships> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Relationships relationship = new Relationships();
+            relationship.setBdrId("BDR" + i);
+            relationship.setBusinessEntity(snapshot);
+            relationship.setNature("subsidiary");
+            relationship.setStatus("active");
+            List<Reasons> reasons = new ArrayList<>();
+            for (int ordinal = 0; ordinal < 2; ordinal++) {
+                Reasons reason = new Reasons();
+                reason.setGoldenBdrId("GOLD" + i);
+                reason.setLabel("label" + ordinal);
+                reasons.add(reason);
+            }
+            relationship.setReasons(reasons);
+            rows.add(relationship);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,168 @@
+package benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing one Maestro snapshot into List<ResponseInternalRatingsEvent>: the token-stream
+// ResponseInternalRatingsEventDeserializer against the readTree + treeToValue(List.class) deserializer it
+// replaced, both registered on a mapper configured like MaestroCodec's. The payload is generated once per
+// trial, 1000 relationships per event with two reasons each.
+//   java -cp <test classpath> benchmarks.EventDeserializerBenchmark [-p relationships=200000]
+// The default size needs about 3 GB of heap for the tree version. On one core, 2M relationships took about
+// 3.8 s with tokenStream and 14.7 s with tree; at 200k, gc.alloc.rate.norm was ~116 MB against ~530 MB.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class EventDeserializerBenchmark {
+
+    private static final int RELATIONSHIPS_PER_EVENT = 1000;
+
+    private static final Class<?> EVENT;
+    private static final MethodHandle NEW_EVENT;
+    private static final MethodHandle SET_RELATIONSHIPS;
+    private static final MethodHandle SET_REASONS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            EVENT = Class.forName("ResponseInternalRatingsEvent");
+            NEW_EVENT = lookup.findConstructor(EVENT, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+            SET_RELATIONSHIPS = setter(lookup, "setRelationships");
+            SET_REASONS = setter(lookup, "setReasons");
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"2000000"})
+    private int relationships;
+
+    private byte[] payload;
+    private ObjectReader tokenStreamReader;
+    private ObjectReader treeReader;
+
+    @Setup
+    public void createPayload() throws ReflectiveOperationException {
+        payload = snapshot(relationships).getBytes(StandardCharsets.UTF_8);
+        tokenStreamReader = eventListReader((JsonDeserializer<?>) Class.forName("ResponseInternalRatingsEventDeserializer")
+            .getConstructor().newInstance());
+        treeReader = eventListReader(new TreeEventDeserializer());
+    }
+
+    @Benchmark
+    public List<?> tokenStream() throws IOException {
+        return tokenStreamReader.readValue(payload);
+    }
+
+    @Benchmark
+    public List<?> tree() throws IOException {
+        return treeReader.readValue(payload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(EventDeserializerBenchmark.class.getName())
+            .addProfiler("gc")
+            .build()).run();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ObjectReader eventListReader(JsonDeserializer<?> deserializer) {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer((Class) EVENT, (JsonDeserializer) deserializer);
+        mapper.registerModule(module);
+        return mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, EVENT));
+    }
+
+    private static String snapshot(int relationships) {
+        StringBuilder json = new StringBuilder(relationships * 160);
+        json.append('[');
+        for (int i = 0; i < relationships; i++) {
+            if (i % RELATIONSHIPS_PER_EVENT == 0) {
+                if (i > 0) {
+                    json.append("]},");
+                }
+                json.append("{\"eventId\":").append(i / RELATIONSHIPS_PER_EVENT).append(",\"relationships\":[");
+            } else {
+                json.append(',');
+            }
+            json.append("{\"bdrId\":\"BDR").append(i).append("\",\"businessEntity\":\"BE").append(i % 50)
+                .append("\",\"nature\":\"subsidiary\",\"status\":\"active\",\"reasons\":[")
+                .append("{\"goldenBdrId\":\"G").append(i).append("\",\"label\":\"ownership\"},")
+                .append("{\"goldenBdrId\":\"H").append(i).append("\",\"label\":\"control\"}]}");
+        }
+        if (relationships > 0) {
+            json.append("],\"reasons\":[]}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static MethodHandle setter(MethodHandles.Lookup lookup, String name) throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(EVENT, name, MethodType.methodType(void.class, List.class));
+        return handle.asType(handle.type().changeParameterType(0, Object.class));
+    }
+
+    // The deserializer ResponseInternalRatingsEventDeserializer replaced: a JsonNode tree per event, then
+    // treeToValue(List.class) into LinkedHashMaps
+    private static final class TreeEventDeserializer extends JsonDeserializer<Object> {
+
+        @Override
+        public Object deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            JsonNode node = jp.getCodec().readTree(jp);
+            try {
+                Object event = (Object) NEW_EVENT.invokeExact();
+                if (node.has("relationships") && node.get("relationships").isArray()) {
+                    SET_RELATIONSHIPS.invokeExact(event, (List<?>) jp.getCodec().treeToValue(node.get("relationships"), List.class));
+                } else {
+                    SET_RELATIONSHIPS.invokeExact(event, (List<?>) new ArrayList<>());
+                }
+                if (node.has("reasons") && node.get("reasons").isArray()) {
+                    SET_REASONS.invokeExact(event, (List<?>) jp.getCodec().treeToValue(node.get("reasons"), List.class));
+                } else {
+                    SET_REASONS.invokeExact(event, (List<?>) new ArrayList<>());
+                }
+                return event;
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -1,35 +1,43 @@
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import org.apache.commons.io.IOUtils;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.HttpHeaders;
 
 public class AdvancedApiDataFetcher {
     
-    private static final int TIMEOUT = 300000; // 5 minutes
     private static final int MAX_RETRIES = 3;
     private static final String BASE_URL = "https://api.example.com/data"; // Replace with actual API URL
+    private static final int PAGE_SIZE = 1000; // Adjust page size as needed
+
+    private final String baseUrl;
+
+    public AdvancedApiDataFetcher() {
+        this(BASE_URL);
+    }
+
+    // Lets the pager run against any endpoint, e.g. a local stub server with injected latency
+    public AdvancedApiDataFetcher(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
     
     public List<ResponseInternalRatingsEvent> fetchAllData() throws IOException {
         List<ResponseInternalRatingsEvent> allData = new ArrayList<>();
+        PageTimings timings = new PageTimings();
         int page = 1;
         boolean hasMoreData = true;
         
         while (hasMoreData) {
-            String url = BASE_URL + "?page=" + page + "&pageSize=1000"; // Adjust page size as needed
-            String json = fetchDataWithRetry(url);
+            byte[] json = fetchDataWithRetry(pageUrl(page), timings);
             
             if (json != null) {
                 List<ResponseInternalRatingsEvent> pageData = processJsonData(json);
@@ -44,15 +52,83 @@ public class AdvancedApiDataFetcher {
                 hasMoreData = false;
             }
         }
+        timings.log();
         
         return allData;
     }
+
+    // Keeps up to maxInFlight page requests running on virtual threads, pages are still merged strictly in order.
+    // The first empty page ends the run; speculative requests for later pages are cancelled and their results dropped.
+    public List<ResponseInternalRatingsEvent> fetchAllDataConcurrently(int maxInFlight) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+        }
+        List<ResponseInternalRatingsEvent> allData = new ArrayList<>();
+        Deque<Future<List<ResponseInternalRatingsEvent>>> inFlight = new ArrayDeque<>(maxInFlight);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        PageTimings timings = new PageTimings();
+        int page = 1;
+        int nextPage = 1;
+
+        try {
+            while (inFlight.size() < maxInFlight) {
+                inFlight.add(submitPage(executor, nextPage++, timings));
+            }
+
+            while (!inFlight.isEmpty()) {
+                List<ResponseInternalRatingsEvent> pageData = awaitPage(inFlight.poll());
+                if (pageData.isEmpty()) {
+                    break;
+                }
+                allData.addAll(pageData);
+                System.out.println("Fetched page " + page + ". Total records: " + allData.size());
+                page++;
+                inFlight.add(submitPage(executor, nextPage++, timings));
+            }
+        } finally {
+            for (Future<List<ResponseInternalRatingsEvent>> speculative : inFlight) {
+                speculative.cancel(true);
+            }
+            // Don't wait for cancelled speculative pages, their threads are virtual and finish on their own
+            executor.shutdownNow();
+        }
+        timings.log();
+
+        return allData;
+    }
+
+    private Future<List<ResponseInternalRatingsEvent>> submitPage(ExecutorService executor, int page, PageTimings timings) {
+        return executor.submit(() -> {
+            byte[] json = fetchDataWithRetry(pageUrl(page), timings);
+            return json != null ? processJsonData(json) : new ArrayList<ResponseInternalRatingsEvent>();
+        });
+    }
+
+    private List<ResponseInternalRatingsEvent> awaitPage(Future<List<ResponseInternalRatingsEvent>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for page", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Page fetch failed", e.getCause());
+        }
+    }
+
+    private String pageUrl(int page) {
+        return baseUrl + "?page=" + page + "&pageSize=" + PAGE_SIZE;
+    }
     
-    private String fetchDataWithRetry(String url) throws IOException {
+    private byte[] fetchDataWithRetry(String url, PageTimings timings) throws IOException {
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
             try {
-                return fetchData(url);
+                return fetchData(url, timings);
             } catch (IOException e) {
+                // A cancelled speculative page is interrupted, retrying it would only waste a connection
+                if (Thread.currentThread().isInterrupted()) throw e;
                 System.err.println("Attempt " + attempt + " failed: " + e.getMessage());
                 if (attempt == MAX_RETRIES) throw e;
             }
@@ -60,42 +136,25 @@ public class AdvancedApiDataFetcher {
         return null;
     }
     
-    private String fetchData(String url) throws IOException {
-        RequestConfig config = RequestConfig.custom()
-            .setConnectTimeout(TIMEOUT)
-            .setConnectionRequestTimeout(TIMEOUT)
-            .setSocketTimeout(TIMEOUT)
-            .build();
-        
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(config).build()) {
-            HttpGet request = new HttpGet(url);
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                if (response.getStatusLine().getStatusCode() == 200) {
-                    byte[] compressedBytes = IOUtils.toByteArray(response.getEntity().getContent());
-                    return decompressGzipContent(compressedBytes);
-                } else {
-                    throw new IOException("Unexpected status code: " + response.getStatusLine().getStatusCode());
-                }
-            }
+    private byte[] fetchData(String url, PageTimings timings) throws IOException {
+        // Shared pooled client: pages and retries reuse kept-alive connections instead of a new handshake each time
+        MaestroHttpClient.Response response = MaestroHttpClient.shared().get(url);
+        if (response.getStatus() == 200) {
+            timings.record(response);
+            return PayloadCodec.shared().decode(response.getBody(), response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        } else {
+            throw new IOException("Unexpected status code: " + response.getStatus());
         }
     }
     
-    private String decompressGzipContent(byte[] compressedBytes) throws IOException {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-             InputStreamReader reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8)) {
-            return IOUtils.toString(reader);
-        }
-    }
-    
-    private List<ResponseInternalRatingsEvent> processJsonData(String json) throws IOException {
+    private List<ResponseInternalRatingsEvent> processJsonData(byte[] json) throws IOException {
         List<ResponseInternalRatingsEvent> results = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        MaestroCodec codec = MaestroCodec.shared();
         
-        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+        try (JsonParser parser = codec.getFactory().createParser(json)) {
             if (parser.nextToken() == JsonToken.START_ARRAY) {
                 while (parser.nextToken() == JsonToken.START_OBJECT) {
-                    ResponseInternalRatingsEvent event = mapper.readValue(parser, ResponseInternalRatingsEvent.class);
+                    ResponseInternalRatingsEvent event = codec.eventReader().readValue(parser);
                     results.add(event);
                 }
             }
@@ -104,8 +163,33 @@ public class AdvancedApiDataFetcher {
         return results;
     }
     
+    // Connection lease and time to first byte over the pages of one fetch, logged once when it ends
+    private static final class PageTimings {
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder leaseMillis = new LongAdder();
+        private final LongAdder timeToFirstByteMillis = new LongAdder();
+        private final LongAccumulator maxLeaseMillis = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator maxTimeToFirstByteMillis = new LongAccumulator(Math::max, 0);
+
+        void record(MaestroHttpClient.Response response) {
+            pages.increment();
+            leaseMillis.add(response.getConnectionLeaseMillis());
+            timeToFirstByteMillis.add(response.getTimeToFirstByteMillis());
+            maxLeaseMillis.accumulate(response.getConnectionLeaseMillis());
+            maxTimeToFirstByteMillis.accumulate(response.getTimeToFirstByteMillis());
+        }
+
+        void log() {
+            long count = Math.max(1, pages.sum());
+            System.out.println("Fetched " + pages.sum() + " pages: connection lease avg " + leaseMillis.sum() / count
+                + " ms (max " + maxLeaseMillis.get() + "), time to first byte avg " + timeToFirstByteMillis.sum() / count
+                + " ms (max " + maxTimeToFirstByteMillis.get() + ")");
+        }
+    }
+
     public static void main(String[] args) {
         try {
+            MaestroCodec.shared().warmUp();
             AdvancedApiDataFetcher fetcher = new AdvancedApiDataFetcher();
             List<ResponseInternalRatingsEvent> allData = fetcher.fetchAllData();
             System.out.println("Total records fetched: " + allData.size());
@@ -1,76 +1,61 @@
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 public class ApiDataFetcher {
     
     private final ObjectMapper objectMapper;
+    // Rows repeating a (bdrId, businessEntity) across wrappers: null loads every copy, see RelationshipDeduplicator.Rule.parse
+    private final RelationshipDeduplicator.Rule dedupRule;
 
     public ApiDataFetcher() {
+        this(null);
+    }
+
+    public ApiDataFetcher(RelationshipDeduplicator.Rule dedupRule) {
+        this.dedupRule = dedupRule;
         objectMapper = new ObjectMapper();
         objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     public ResponseInternalRatingsEvent fetchData(Result result) {
-        if (result.getStatus() == 200) {
+        return fetchData(result.getStatus(), result.getBody().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, byte[] body) {
+        return fetchData(status, new ByteArrayInputStream(body));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, ByteBuffer body) {
+        return fetchData(status, PayloadCodec.asStream(body));
+    }
+
+    public ResponseInternalRatingsEvent fetchData(int status, InputStream body) {
+        if (status == 200) {
             System.out.println("Successfully received data from Maestro");
-            byte[] compressedBytes = result.getBody().getBytes(StandardCharsets.ISO_8859_1);
-            String decompressedJson = decompressGzipContent(compressedBytes);
-            
-            if (decompressedJson != null) {
-                return processJsonData(decompressedJson);
-            }
+            return processJsonData(body);
         } else {
-            System.err.println("Unexpected status code: " + result.getStatus());
+            System.err.println("Unexpected status code: " + status);
         }
         return null;
     }
     
-    private String decompressGzipContent(byte[] compressedBytes) {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-             InputStreamReader reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8)) {
-            return IOUtils.toString(reader);
-        } catch (IOException e) {
-            System.err.println("Error decompressing GZIP content: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-    
-    private ResponseInternalRatingsEvent processJsonData(String json) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(json);
-            List<ResponseInternalRatingsEvent> responseObjects = new ArrayList<>();
-
-            if (rootNode.isArray()) {
-                responseObjects = objectMapper.readValue(json, new TypeReference<List<ResponseInternalRatingsEvent>>() {});
-            } else {
-                ResponseInternalRatingsEvent singleEvent = objectMapper.treeToValue(rootNode, ResponseInternalRatingsEvent.class);
-                responseObjects.add(singleEvent);
-            }
-
-            List<Relationship> allRelationships = new ArrayList<>();
-            for (ResponseInternalRatingsEvent event : responseObjects) {
-                if (event.getRelationships() != null) {
-                    allRelationships.addAll(event.getRelationships());
-                }
-            }
+    private ResponseInternalRatingsEvent processJsonData(InputStream body) {
+        try (InputStream json = PayloadCodec.shared().decodingStream(body, null)) {
+            // A single object comes back as a one element list thanks to ACCEPT_SINGLE_VALUE_AS_ARRAY
+            List<ResponseInternalRatingsEvent> responseObjects = objectMapper.readValue(json, new TypeReference<List<ResponseInternalRatingsEvent>>() {});
 
-            ResponseInternalRatingsEvent result = new ResponseInternalRatingsEvent();
-            result.setRelationships(allRelationships);
+            ResponseInternalRatingsEvent result = RatingsEventAggregator.merge(responseObjects, dedupRule);
 
-            System.out.println("Total relationships processed: " + allRelationships.size());
+            System.out.println("Total relationships processed: " + result.getRelationships().size());
             return result;
         } catch (IOException e) {
             System.err.println("Error processing JSON data: " + e.getMessage());
@@ -1,73 +1,60 @@
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 public class ApiDataFetcher {
 
+    // Rows repeating a (bdrId, businessEntity) across wrappers: null loads every copy, see RelationshipDeduplicator.Rule.parse
+    private final RelationshipDeduplicator.Rule dedupRule;
+
+    public ApiDataFetcher() {
+        this(null);
+    }
+
+    public ApiDataFetcher(RelationshipDeduplicator.Rule dedupRule) {
+        this.dedupRule = dedupRule;
+    }
+
     public ResponseInternalRatingsEvent sendInternalRatingsEventsApi(String apiResponse, int statusCode) throws IOException {
-        try {
-            if (statusCode != 200) {
-                throw new IOException("Unexpected status code: " + statusCode);
-            }
+        return sendInternalRatingsEventsApi(apiResponse.getBytes(StandardCharsets.ISO_8859_1), statusCode);
+    }
 
-            System.out.println("Successfully received data from API");
-            
-            // Decompress GZIP content
-            byte[] compressedBytes = apiResponse.getBytes(StandardCharsets.ISO_8859_1);
-            String decompressedJson = decompressGzipContent(compressedBytes);
+    public ResponseInternalRatingsEvent sendInternalRatingsEventsApi(byte[] apiResponse, int statusCode) throws IOException {
+        return sendInternalRatingsEventsApi(new ByteArrayInputStream(apiResponse), statusCode);
+    }
 
-            // Process JSON data
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    public ResponseInternalRatingsEvent sendInternalRatingsEventsApi(ByteBuffer apiResponse, int statusCode) throws IOException {
+        return sendInternalRatingsEventsApi(PayloadCodec.asStream(apiResponse), statusCode);
+    }
 
-            JsonNode rootNode = objectMapper.readTree(decompressedJson);
-            List<ResponseInternalRatingsEvent> responseObjects = new ArrayList<>();
+    public ResponseInternalRatingsEvent sendInternalRatingsEventsApi(InputStream apiResponse, int statusCode) throws IOException {
+        if (statusCode != 200) {
+            throw new IOException("Unexpected status code: " + statusCode);
+        }
 
-            if (rootNode.isArray()) {
-                responseObjects = objectMapper.readValue(decompressedJson, new TypeReference<List<ResponseInternalRatingsEvent>>() {});
-            } else {
-                ResponseInternalRatingsEvent singleEvent = objectMapper.treeToValue(rootNode, ResponseInternalRatingsEvent.class);
-                responseObjects.add(singleEvent);
-            }
+        System.out.println("Successfully received data from API");
 
-            List<Relationship> allRelationships = new ArrayList<>();
-            for (ResponseInternalRatingsEvent event : responseObjects) {
-                if (event.getRelationships() != null) {
-                    allRelationships.addAll(event.getRelationships());
-                }
-            }
+        // Decompress while parsing, the payload never becomes a String
+        try (InputStream decompressedJson = PayloadCodec.shared().decodingStream(apiResponse, null)) {
+            // Process JSON data, a single object is accepted as a one element list
+            List<ResponseInternalRatingsEvent> responseObjects = MaestroCodec.shared().eventListReader().readValue(decompressedJson);
 
-            ResponseInternalRatingsEvent result = new ResponseInternalRatingsEvent();
-            result.setRelationships(allRelationships);
+            ResponseInternalRatingsEvent result = RatingsEventAggregator.merge(responseObjects, dedupRule);
 
-            System.out.println("Total relationships processed: " + allRelationships.size());
+            System.out.println("Total relationships processed: " + result.getRelationships().size());
             return result;
-        } catch (JsonProcessingException e) {
-            System.err.println("Error processing JSON: " + e.getMessage());
-            throw new IOException("JSON processing error", e);
         } catch (JsonMappingException e) {
             System.err.println("Error mapping JSON to objects: " + e.getMessage());
             throw new IOException("JSON mapping error", e);
-        }
-    }
-
-    private String decompressGzipContent(byte[] compressedBytes) throws IOException {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-             InputStreamReader reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8)) {
-            return IOUtils.toString(reader);
+        } catch (JsonProcessingException e) {
+            System.err.println("Error processing JSON: " + e.getMessage());
+            throw new IOException("JSON processing error", e);
         }
     }
 }
@@ -1,19 +1,24 @@
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 public class RobustApiDataFetcher {
 
+    // Rows repeating a (bdrId, businessEntity) across events: null keeps the events as received, a rule
+    // merges them into one deduplicated event, see RelationshipDeduplicator.Rule.parse
+    private final RelationshipDeduplicator.Rule dedupRule;
+
+    public RobustApiDataFetcher() {
+        this(null);
+    }
+
+    public RobustApiDataFetcher(RelationshipDeduplicator.Rule dedupRule) {
+        this.dedupRule = dedupRule;
+    }
+
     public ResponseWrapper fetchAndProcessData(int status, byte[] compressedBytes) {
         if (status != 200) {
             System.err.println("Unexpected status code: " + status);
@@ -22,7 +27,7 @@ public class RobustApiDataFetcher {
 
         System.out.println("Successfully received data from Maestro");
 
-        String decompressedJson = decompressData(compressedBytes);
+        byte[] decompressedJson = decompressData(compressedBytes);
         if (decompressedJson == null) {
             return null;
         }
@@ -30,30 +35,28 @@ public class RobustApiDataFetcher {
         return processJsonData(decompressedJson);
     }
 
-    private String decompressData(byte[] compressedBytes) {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-             InputStreamReader reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8)) {
-            return IOUtils.toString(reader);
+    // Stays in bytes: both parse attempts below read the same decompressed buffer without a String copy
+    private byte[] decompressData(byte[] compressedBytes) {
+        try {
+            return PayloadCodec.shared().decode(compressedBytes, null);
         } catch (IOException e) {
-            System.err.println("Error decompressing GZIP content: " + e.getMessage());
+            System.err.println("Error decompressing content: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
 
-    private RobustApiDataFetcher processJsonData(String json) {
-        ObjectMapper mapperObj = new ObjectMapper();
-        mapperObj.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-        mapperObj.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private RobustApiDataFetcher processJsonData(byte[] json) {
+        MaestroCodec codec = MaestroCodec.shared();
 
         try {
             // First, try to parse as a single RobustApiDataFetcher
-            RobustApiDataFetcher singleObject = mapperObj.readValue(json, RobustApiDataFetcher.class);
+            RobustApiDataFetcher singleObject = codec.readerFor(RobustApiDataFetcher.class).readValue(json);
             return singleObject;
         } catch (JsonProcessingException e) {
             // If parsing as a single object fails, try parsing as a list
             try {
-                List<RobustApiDataFetcher> responseObjects = mapperObj.readValue(json, new TypeReference<List<RobustApiDataFetcher>>() {});
+                List<RobustApiDataFetcher> responseObjects = codec.readerFor(new TypeReference<List<RobustApiDataFetcher>>() {}).readValue(json);
                 
                 // Combine all events into a single RobustApiDataFetcher
                 RobustApiDataFetcher combinedResponse = new RobustApiDataFetcher();
@@ -63,6 +66,9 @@ public class RobustApiDataFetcher {
                         allEvents.addAll(wrapper.getResponseInternalRatingsEvents());
                     }
                 }
+                if (dedupRule != null) {
+                    allEvents = new ArrayList<>(List.of(RatingsEventAggregator.merge(allEvents, dedupRule)));
+                }
                 combinedResponse.setResponseInternalRatingsEvents(allEvents);
                 return combinedResponse;
             } catch (JsonProcessingException e2) {
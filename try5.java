@@ -1,83 +1,230 @@
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Map;
-import java.util.zip.Inflater;
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
-private String decompressData(byte[] compressedBytes) {
-    // First, try GZIP decompression
-    try {
-        ByteArrayInputStream bis = new ByteArrayInputStream(compressedBytes);
-        GZIPInputStream gis = new GZIPInputStream(bis);
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int len;
-        while ((len = gis.read(buffer)) != -1) {
-            bos.write(buffer, 0, len);
-        }
-        gis.close();
-        bos.close();
-        return new String(bos.toByteArray(), StandardCharsets.UTF_8);
-    } catch (IOException e) {
-        System.out.println("GZIP decompression failed, trying Inflater: " + e.getMessage());
-    }
+private static final String BACKFILL_CHECKPOINT_FILE = "maestro-backfill.checkpoint";
+private static final double BACKFILL_REQUESTS_PER_SECOND = 2.0;
+private static final int BACKFILL_DB_CONNECTIONS = 4;
+private static final int BACKFILL_DATES_IN_FLIGHT = 8;
+private static final String SNAPSHOT_STATE_FILE = "maestro-snapshots.state";
+private static final int PIPELINE_FETCH_PARALLELISM = 2;
+private static final int PIPELINE_PARSE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+private static final int PIPELINE_PAYLOAD_QUEUE_DEPTH = 2;
+private static final int PIPELINE_BATCH_QUEUE_DEPTH = 8;
+private static final int PIPELINE_BATCH_SIZE = 5000;
 
-    // If GZIP fails, try Inflater
-    try {
-        Inflater inflater = new Inflater(true); // true for ZLIB header
-        inflater.setInput(compressedBytes);
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressedBytes.length);
-        byte[] buffer = new byte[1024];
-        while (!inflater.finished()) {
-            int count = inflater.inflate(buffer);
-            outputStream.write(buffer, 0, count);
-        }
-        outputStream.close();
-        inflater.end();
+// Shares MaestroHttpClient's connection pool and Accept-Encoding negotiation with the page fetcher
+private final RestTemplate maestroRestTemplate = new RestTemplate(MaestroHttpClient.shared().requestFactory());
+
+// Validators and payload hash of the last ingested snapshot per date, unchanged snapshots are skipped
+private final SnapshotChangeTracker snapshotChangeTracker = new SnapshotChangeTracker(Paths.get(SNAPSHOT_STATE_FILE));
+
+// Rows repeating a (bdrId, businessEntity) across wrappers: blank loads every copy, keep-first or keep-last keeps one
+@Value("${dbeclient.dedup-rule:}")
+private String dedupRuleName;
+
+// Parsed once at startup, an unknown rule fails there rather than on the first snapshot
+private RelationshipDeduplicator.Rule snapshotDedupRule;
+
+// Decoded snapshot size up to which readSnapshotStore keeps the rows on the heap (default 512 MiB)
+@Value("${dbeclient.snapshot-heap-budget-bytes:536870912}")
+private long snapshotHeapBudgetBytes;
 
-        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
-    } catch (DataFormatException | IOException e) {
-        System.err.println("Error decompressing content with Inflater: " + e.getMessage());
+// Where larger snapshots are spilled to memory-mapped segment files; absolute by default, not the working directory
+@Value("${dbeclient.snapshot-spill-dir:${java.io.tmpdir}/maestro-spill}")
+private String snapshotSpillDir;
+
+// Token is renewed in the background, fetches only wait for auth on a cold start
+private final SgConnectTokenCache sgConnectTokenCache = new SgConnectTokenCache(this::generateSGconnectToken);
+
+@PostConstruct
+public void warmUpMaestroClient() {
+    snapshotDedupRule = RelationshipDeduplicator.Rule.parse(dedupRuleName);
+    sgConnectTokenCache.prefetch();
+    MaestroCodec.shared().warmUp();
+}
+
+private byte[] decompressData(byte[] compressedBytes, String contentEncoding) {
+    // Codec is picked from the leading bytes, no failed decompression attempts on the way
+    try {
+        return PayloadCodec.shared().decode(compressedBytes, contentEncoding);
+    } catch (IOException e) {
+        System.err.println("Error decompressing content: " + e.getMessage());
         e.printStackTrace();
+        return null;
     }
-
-    // If both decompression methods fail, return the original data as a string
-    System.out.println("Both decompression methods failed. Returning original data as string.");
-    return new String(compressedBytes, StandardCharsets.UTF_8);
 }
 
 public ResponseInternalRatingsEvent sendInternalRatingsEventsApi() throws IOException, JsonException {
-    String access_token = generateSGconnectToken();
-    ResponseInternalRatingsEvent responseObject = null;
-    String maestrodate = "?snapshotDate=2024-09-11";
+    return sendInternalRatingsEventsApi("2024-09-11");
+}
+
+public ResponseInternalRatingsEvent sendInternalRatingsEventsApi(String snapshotDate) throws IOException, JsonException {
+    String access_token = sgConnectTokenCache.getToken();
+    String maestrodate = "?snapshotDate=" + snapshotDate;
     
     System.out.println("*sending Data To ApT****");
     
-    RestTemplate restTemplate = new RestTemplate();
+    HttpHeaders headers = maestroHeaders(access_token);
+    snapshotChangeTracker.conditionalHeaders(snapshotDate).forEach(headers::set);
+    
+    HttpEntity<String> entity = new HttpEntity<>("", headers);
+    
+    ResponseEntity<byte[]> result = maestroRestTemplate.exchange(
+        this.dbeclientProperties.getMaestroLebdrIdApiUrl() + maestrodate,
+        HttpMethod.GET,
+        entity,
+        byte[].class
+    );
+    
+    return handleMaestroResponse(snapshotDate, result.getStatusCode().value(), result.getBody(),
+        result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING),
+        result.getHeaders().getETag(),
+        result.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+}
+
+private HttpHeaders maestroHeaders(String accessToken) {
     HttpHeaders headers = new HttpHeaders();
-    headers.set("Authorization", "Bearer " + access_token);
+    headers.set("Authorization", "Bearer " + accessToken);
     headers.set("content-Language", "en-US");
     headers.set("Host", "maestro-search-uat.fr.world.socgen");
     headers.set("Accept", "*/*");
     headers.set("content-type", "application/json");
     headers.set("accept", "application/octet-stream");
-    headers.set("Accept-Encoding", "gzip, deflate");
-    
+    return headers;
+}
+
+// Fetches, parses and inserts the given snapshotDates with the three stages overlapping: batches are
+// written while later parts of the payload are still parsed and the next dates fetched.
+// Batches are written through dbeClientDao.saveRelationshipsBatch, on its IngestExecutor: one insert worker
+// per connection it may hold. Unchanged snapshots are skipped, loaded ones are confirmed to the tracker.
+public Map<String, IngestPipeline.StageMetrics> ingestSnapshotsPipelined(List<String> snapshotDates, DbeClientDao dbeClientDao)
+        throws IOException, InterruptedException {
+    IngestPipeline pipeline = new IngestPipeline(
+        this::fetchSnapshotPayload,
+        dbeClientDao::saveRelationshipsBatch,
+        (snapshotDate, rows, loadMillis) -> snapshotChangeTracker.markIngested(snapshotDate, loadMillis),
+        PIPELINE_FETCH_PARALLELISM,
+        PIPELINE_PARSE_PARALLELISM,
+        dbeClientDao.getIngestConcurrency(),
+        PIPELINE_PAYLOAD_QUEUE_DEPTH,
+        PIPELINE_BATCH_QUEUE_DEPTH,
+        PIPELINE_BATCH_SIZE
+    );
+    return pipeline.run(snapshotDates);
+}
+
+// Raw compressed body for the pipeline, decompression and parsing happen in its next stage;
+// null (skip) when the snapshot is unchanged since it was last ingested
+private IngestPipeline.Payload fetchSnapshotPayload(String snapshotDate) throws IOException {
+    HttpHeaders headers = maestroHeaders(sgConnectTokenCache.getToken());
+    snapshotChangeTracker.conditionalHeaders(snapshotDate).forEach(headers::set);
     HttpEntity<String> entity = new HttpEntity<>("", headers);
-    
-    ResponseEntity<byte[]> result = restTemplate.exchange(
-        this.dbeclientProperties.getMaestroLebdrIdApiUrl() + maestrodate,
+    ResponseEntity<byte[]> result = maestroRestTemplate.exchange(
+        this.dbeclientProperties.getMaestroLebdrIdApiUrl() + "?snapshotDate=" + snapshotDate,
         HttpMethod.GET,
         entity,
         byte[].class
     );
-    
     int status = result.getStatusCode().value();
+    if (status == 304) {
+        snapshotChangeTracker.notModified(snapshotDate);
+        return null;
+    }
+    if (status != 200) {
+        String errorMessage = "API returned status code: " + status + " for snapshotDate=" + snapshotDate;
+        System.err.println(errorMessage);
+        sendSgmrDataService.sendErrorNotification("API Error", errorMessage);
+        throw new IOException(errorMessage);
+    }
+    if (snapshotChangeTracker.isUnchanged(snapshotDate, result.getBody(), result.getHeaders().getETag(),
+            result.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED))) {
+        return null;
+    }
+    return new IngestPipeline.Payload(snapshotDate, result.getBody(), result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+}
+
+// Same status handling and notifications as the blocking call, but the caller's thread is never held:
+// token, request, decompression and parsing all run on virtual threads
+public CompletableFuture<ResponseInternalRatingsEvent> sendInternalRatingsEventsApiAsync(String snapshotDate) {
+    AsyncMaestroClient client = AsyncMaestroClient.shared();
+    String url = this.dbeclientProperties.getMaestroLebdrIdApiUrl() + "?snapshotDate=" + snapshotDate;
+
+    System.out.println("*sending Data To ApT**** snapshotDate=" + snapshotDate);
+
+    return CompletableFuture
+        .supplyAsync(() -> {
+            try {
+                return sgConnectTokenCache.getToken();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, client.executor())
+        .thenCompose(accessToken -> {
+            // Host is a restricted header for the JDK client, it is always derived from the URL
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Authorization", "Bearer " + accessToken);
+            headers.put("content-Language", "en-US");
+            headers.put("content-type", "application/json");
+            headers.put("accept", "application/octet-stream");
+            headers.putAll(snapshotChangeTracker.conditionalHeaders(snapshotDate));
+            return client.get(url, headers);
+        })
+        .thenApplyAsync(result -> handleMaestroResponse(snapshotDate, result.statusCode(), result.body(),
+            result.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null),
+            result.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+            result.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null)), client.executor());
+}
+
+// Loads every snapshotDate in [from, to] in parallel; dates already in the checkpoint file are skipped
+public void backfillSnapshots(LocalDate from, LocalDate to, DbeClientDao dbeClientDao) throws IOException, InterruptedException {
+    SnapshotBackfillScheduler scheduler = new SnapshotBackfillScheduler(
+        date -> sendInternalRatingsEventsApiAsync(date.toString()),
+        dbeClientDao,
+        Paths.get(BACKFILL_CHECKPOINT_FILE),
+        snapshotChangeTracker,
+        BACKFILL_REQUESTS_PER_SECOND,
+        BACKFILL_DB_CONNECTIONS,
+        BACKFILL_DATES_IN_FLIGHT
+    );
+    scheduler.run(from, to);
+}
+
+// Callers that load the snapshot themselves confirm it here, otherwise the next run ingests it again
+public void confirmSnapshotLoaded(String snapshotDate, long loadMillis) {
+    snapshotChangeTracker.markIngested(snapshotDate, loadMillis);
+}
+
+// Parses a compressed snapshot into a RelationshipStore: on the heap when the decoded JSON fits
+// dbeclient.snapshot-heap-budget-bytes, in memory-mapped segments under dbeclient.snapshot-spill-dir otherwise. Either way it is loaded with
+// DbeClientDao.saveRelationshipStore; the caller closes it afterwards to release any spill files.
+public RelationshipStore readSnapshotStore(byte[] responseBody, String contentEncoding) throws IOException {
+    long decodedBytes = PayloadCodec.decodedSizeHint(responseBody, contentEncoding);
+    RelationshipStore store = RelationshipStore.forSnapshot(decodedBytes, snapshotHeapBudgetBytes, Paths.get(snapshotSpillDir));
+    try {
+        new StreamingRelationshipReader().read(new ByteArrayInputStream(responseBody), contentEncoding, store::add);
+        System.out.println("Total relationships processed: " + store.size() + " (" + store + ")");
+        return store;
+    } catch (IOException | RuntimeException e) {
+        store.close();
+        throw e;
+    }
+}
+
+private ResponseInternalRatingsEvent handleMaestroResponse(String snapshotDate, int status, byte[] responseBody,
+                                                           String contentEncoding, String etag, String lastModified) {
+    ResponseInternalRatingsEvent responseObject = null;
+    
+    if (status == 304) {
+        snapshotChangeTracker.notModified(snapshotDate);
+        return SnapshotChangeTracker.UNCHANGED;
+    }
     
     if (status == 400 || status == 401 || status == 402 || status == 403 || status == 404 || status == 500 || status == 201) {
         String errorMessage = "API returned status code: " + status;
@@ -88,8 +235,11 @@ public ResponseInternalRatingsEvent sendInternalRatingsEventsApi() throws IOExce
     
     if (status == 200) {
         System.out.println("Successfully Data received from Maestro");
-        byte[] responseBody = result.getBody();
-        String decompressedJson = decompressData(responseBody);
+        if (snapshotChangeTracker.isUnchanged(snapshotDate, responseBody, etag, lastModified)) {
+            return SnapshotChangeTracker.UNCHANGED;
+        }
+        long startTime = System.currentTimeMillis();
+        byte[] decompressedJson = decompressData(responseBody, contentEncoding);
         
         if (decompressedJson == null) {
             System.err.println("Failed to decompress or read the response data");
@@ -97,28 +247,13 @@ public ResponseInternalRatingsEvent sendInternalRatingsEventsApi() throws IOExce
         }
         
         try {
-            ObjectMapper mapperObj = new ObjectMapper();
-            mapperObj.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-            mapperObj.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            
-            List<ResponseInternalRatingsEvent> responseObjects = mapperObj.readValue(decompressedJson, 
-                new TypeReference<List<ResponseInternalRatingsEvent>>() {});
-            
-            List<Relationships> allRelationships = new ArrayList<>();
-            for (ResponseInternalRatingsEvent wrapper : responseObjects) {
-                if (wrapper.getRelationships() != null) {
-                    allRelationships.addAll(wrapper.getRelationships());
-                }
-            }
-            
-            ResponseInternalRatingsEvent transformedData = new ResponseInternalRatingsEvent();
-            transformedData.setRelationships(allRelationships);
-            
-            String transformedJson = mapperObj.writeValueAsString(transformedData);
-            System.out.println("Transformed JSON: " + transformedJson);
+            // Top-level events are split at their byte boundaries and parsed on all cores, in order
+            List<ResponseInternalRatingsEvent> responseObjects = ParallelEventParser.shared().parse(decompressedJson);
             
-            responseObject = mapperObj.readValue(transformedJson, ResponseInternalRatingsEvent.class);
-        } catch (JsonProcessingException e) {
+            responseObject = RatingsEventAggregator.merge(responseObjects, snapshotDedupRule);
+            System.out.println("Total relationships processed: " + responseObject.getRelationships().size());
+            snapshotChangeTracker.addProcessingTime(snapshotDate, System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
             System.err.println("Error parsing JSON: " + e.getMessage());
             e.printStackTrace();
         }
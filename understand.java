@@ -1,13 +1,15 @@
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class DbeClientDaoImpl implements DbeClientDao {
 
-    // Define constants for batch size, when to split work, and how often to log
+    // Define constants for batch size, how many records one task inserts, and how often to log
     private static final int BATCH_SIZE = 5000;
-    private static final int PARALLELISM_THRESHOLD = 10000;
+    private static final int SLICE_SIZE = 10000;
     private static final int LOG_INTERVAL = 10000;
+    // Connections left to the rest of the application while a snapshot loads
+    private static final int INGEST_RESERVED_CONNECTIONS = 2;
 
     // Tool for database operations
     @Autowired
@@ -16,9 +18,32 @@ public class DbeClientDaoImpl implements DbeClientDao {
     // Counter for total inserted records, safe for multiple threads
     private AtomicInteger totalInserted = new AtomicInteger(0);
 
-    // Main method to start the insertion process
-    @Transactional
+    // Size of the connection pool the JdbcTemplate draws from (HikariCP default is 10)
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int jdbcPoolSize;
+
+    // Long-lived threads for the blocking inserts, one per connection they may hold
+    private IngestExecutor ingestExecutor;
+
+    // Start the insert threads once the pool size is known
+    @PostConstruct
+    public void startIngestExecutor() {
+        ingestExecutor = new IngestExecutor(IngestExecutor.concurrencyFor(jdbcPoolSize, INGEST_RESERVED_CONNECTIONS));
+    }
+
+    // Let the insert threads finish what is queued, then stop
+    @PreDestroy
+    public void stopIngestExecutor() {
+        ingestExecutor.shutdown();
+    }
+
+    // Main method to start the insertion process. Not @Transactional: the slices are inserted on the
+    // ingest threads, each batch commits on its own connection.
     public void saveInternalRatingEventsApi(ResponseInternalRatingsEvent internalRatingsEventResponse) {
+        // Nothing to write for a snapshot the change tracker found unchanged
+        if (SnapshotChangeTracker.isUnchanged(internalRatingsEventResponse)) {
+            return;
+        }
         // Get the list of relationships to insert
         List<Relationships> relationshipsArrayList = internalRatingsEventResponse.getRelationships();
         int totalSize = relationshipsArrayList.size();
@@ -27,87 +52,59 @@ public class DbeClientDaoImpl implements DbeClientDao {
         if (totalSize > 0) {
             // Record the start time
             long startTime = System.currentTimeMillis();
-            
-            // Create a pool of worker threads
-            ForkJoinPool pool = ForkJoinPool.commonPool();
-            // Create a task to insert all records
-            InsertTask task = new InsertTask(relationshipsArrayList, 0, totalSize);
-            // Start the task
-            pool.invoke(task);
+
+            // Queue one task per slice on a lane of its own, so other loads still get their turn
+            IngestExecutor.Lane lane = ingestExecutor.newLane("insert");
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (int start = 0; start < totalSize; start += SLICE_SIZE) {
+                int sliceStart = start;
+                int sliceEnd = Math.min(start + SLICE_SIZE, totalSize);
+                tasks.add(lane.submit(() -> processSlice(relationshipsArrayList, sliceStart, sliceEnd)));
+            }
+            // Wait for every slice; join() rethrows the first failure
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
 
             // Log the final progress
             logProgress(totalInserted.get(), startTime);
         }
     }
 
-    // A task that can split itself into smaller tasks
-    private class InsertTask extends RecursiveAction {
-        private final List<Relationships> relationships;
-        private final int start;
-        private final int end;
-
-        // Constructor to define which part of the list this task should work on
-        InsertTask(List<Relationships> relationships, int start, int end) {
-            this.relationships = relationships;
-            this.start = start;
-            this.end = end;
-        }
-
-        // Method that decides whether to do the work or split it
-        @Override
-        protected void compute() {
-            if (end - start <= PARALLELISM_THRESHOLD) {
-                // If the task is small enough, do the work
-                processBatch();
-            } else {
-                // Otherwise, split the task into two
-                int mid = start + (end - start) / 2;
-                invokeAll(new InsertTask(relationships, start, mid),
-                          new InsertTask(relationships, mid, end));
-            }
-        }
-
-        // Method to process and insert a batch of records
-        private void processBatch() {
-            // Prepare a batch of records to insert
-            Object[][] batchArgs = new Object[BATCH_SIZE][6];
-            int batchIndex = 0;
+    // Method to process and insert one slice of the records, in batches
+    private void processSlice(List<Relationships> relationships, int start, int end) {
+        // Reuse this thread's column buffers, rows are bound from them without allocating per row
+        RelationshipColumns columns = RelationshipColumns.forCurrentThread(true);
 
+        try {
             for (int i = start; i < end; i++) {
-                // Get the current relationship
-                Relationships relationship = relationships.get(i);
-                List<Reasons> reasonsArrayList = relationship.getReasons();
-
-                // Prepare the data for this relationship
-                batchArgs[batchIndex] = new Object[] {
-                    relationship.getBdrId(),
-                    relationship.getBusinessEntity(),
-                    relationship.getNature(),
-                    relationship.getStatus(),
-                    reasonsArrayList.isEmpty() ? null : reasonsArrayList.get(0).getGoldenBdrId(),
-                    reasonsArrayList.isEmpty() ? null : reasonsArrayList.get(0).getLabel()
-                };
-
-                batchIndex++;
+                // Copy the current relationship (and its first reason) into the columns
+                columns.add(relationships.get(i));
 
                 // If we've filled a batch or reached the end, insert the records
-                if (batchIndex == BATCH_SIZE || i == end - 1) {
-                    int inserted = executeBatch(batchIndex == BATCH_SIZE ? batchArgs : Arrays.copyOf(batchArgs, batchIndex));
+                if (columns.size() == BATCH_SIZE || i == end - 1) {
+                    int inserted = executeBatch(columns);
                     int newTotal = totalInserted.addAndGet(inserted);
                     // Log progress at regular intervals
                     if (newTotal % LOG_INTERVAL == 0) {
                         logProgress(newTotal, System.currentTimeMillis());
                     }
-                    batchIndex = 0;
+                    columns.clear();
                 }
             }
+        } finally {
+            // Don't keep the last rows, or arrays grown for an unusually large batch, reachable from the thread
+            columns.release();
         }
     }
 
     // Method to actually insert records into the database
-    private int executeBatch(Object[][] batchArgs) {
-        int[] updateCounts = jdbcTemplate.batchUpdate(QRY_SAVE_INTERNALRATINGSEVENTS.value(), Arrays.asList(batchArgs));
-        return Arrays.stream(updateCounts).sum();
+    private int executeBatch(RelationshipColumns columns) {
+        ColumnarBatchSetter setter = ColumnarBatchSetter.forColumns(columns);
+        try {
+            int[] updateCounts = jdbcTemplate.batchUpdate(QRY_SAVE_INTERNALRATINGSEVENTS.value(), setter);
+            return Arrays.stream(updateCounts).sum();
+        } finally {
+            setter.release();
+        }
     }
 
     // Method to log the progress of insertions